@@ -0,0 +1,133 @@
+package org.pinae.rafiki;
+
+import java.lang.management.ManagementFactory;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.pinae.rafiki.trigger.impl.CronTrigger;
+
+/**
+ * Compare matches per second and allocation per match of the compiled CronTrigger with the former
+ * GregorianCalendar and TreeSet based matching, and the time to preview one year of fire times
+ */
+public class CronBenchmark {
+    private static final Logger logger = LogManager.getLogger(CronBenchmark.class);
+
+    private static final String CRON = "0-30/10 * 8-18 * * MON-FRI *";
+
+    public static void main(String[] arg) {
+        int matchNum = arg.length > 0 ? Integer.parseInt(arg[0]) : 5000000;
+        int rounds = 5;
+
+        CronTrigger trigger = new CronTrigger(TimeZone.getDefault(), CRON);
+        trigger.setStartTime(new Date(0));
+        LegacyCronMatcher legacy = new LegacyCronMatcher();
+
+        for (int i = 0; i < rounds; i++) {
+            boolean report = i == rounds - 1;
+            run("legacy", matchNum, report, time -> legacy.match(TimeZone.getDefault(), time));
+            run("compiled", matchNum, report, time -> trigger.match(new Date(time)));
+        }
+
+        for (int i = 0; i < rounds; i++) {
+            preview(i == rounds - 1);
+        }
+    }
+
+    /*
+     * List one year of fire times by matching every second, and by jumping from one fire time to the next
+     */
+    private static void preview(boolean report) {
+        CronTrigger trigger = new CronTrigger(TimeZone.getDefault(), CRON);
+        long start = System.currentTimeMillis();
+        long end = start + 365L * 86400000L;
+
+        long scanStart = System.nanoTime();
+        int scanned = 0;
+        for (long time = start + 1000; time <= end; time += 1000) {
+            if (trigger.match(new Date(time))) {
+                scanned++;
+            }
+        }
+        long scanUsed = System.nanoTime() - scanStart;
+
+        long jumpStart = System.nanoTime();
+        int jumped = 0;
+        for (long time = trigger.nextMatchTime(start); time >= 0 && time <= end; time = trigger.nextMatchTime(time)) {
+            jumped++;
+        }
+        long jumpUsed = System.nanoTime() - jumpStart;
+
+        if (report) {
+            logger.info(String.format("preview=1 year; scan=%d fire times in %d ms; jump=%d fire times in %d ms", scanned, scanUsed / 1000000,
+                    jumped, jumpUsed / 1000000));
+        }
+    }
+
+    private interface Matcher {
+        boolean match(long time);
+    }
+
+    private static void run(String name, int matchNum, boolean report, Matcher matcher) {
+        // Poll once per second, like a task group polling its cron triggers
+        long time = System.currentTimeMillis();
+        int matched = 0;
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < matchNum; i++) {
+            if (matcher.match(time + i * 1000L)) {
+                matched++;
+            }
+        }
+        long used = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        if (report) {
+            logger.info(String.format("matcher=%s; matches=%d; matched=%d; rate=%d matches/s; allocation=%d bytes/match", name, matchNum, matched,
+                    matchNum * 1000000000L / used, allocated / matchNum));
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /*
+     * Matching as implemented before the cron fields were compiled into bitmasks
+     */
+    private static class LegacyCronMatcher {
+        private final Set<Integer> secondSet = range(0, 30, 10);
+        private final Set<Integer> minuteSet = range(0, 59, 1);
+        private final Set<Integer> hourSet = range(8, 18, 1);
+        private final Set<Integer> dayOfMonthSet = range(1, 31, 1);
+        private final Set<Integer> monthSet = range(0, 11, 1);
+        private final Set<Integer> dayOfWeekSet = range(2, 6, 1);
+        private final Set<Integer> yearSet = range(1970, 2100, 1);
+
+        private static Set<Integer> range(int start, int end, int interval) {
+            Set<Integer> result = new TreeSet<>();
+            for (int i = start; i <= end; i += interval) {
+                result.add(i);
+            }
+            return result;
+        }
+
+        boolean match(TimeZone zone, long time) {
+            GregorianCalendar gc = new GregorianCalendar();
+            gc.setTimeInMillis(time);
+            gc.setTimeZone(zone);
+
+            return secondSet.contains(gc.get(Calendar.SECOND)) && minuteSet.contains(gc.get(Calendar.MINUTE))
+                    && hourSet.contains(gc.get(Calendar.HOUR_OF_DAY)) && dayOfMonthSet.contains(gc.get(Calendar.DAY_OF_MONTH))
+                    && monthSet.contains(gc.get(Calendar.MONTH)) && dayOfWeekSet.contains(gc.get(Calendar.DAY_OF_WEEK))
+                    && yearSet.contains(gc.get(Calendar.YEAR));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.pinae.rafiki;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.pinae.rafiki.job.AbstractJob;
+import org.pinae.rafiki.job.Job;
+import org.pinae.rafiki.job.JobException;
+import org.pinae.rafiki.job.impl.ReflectionJob;
+
+/**
+ * Compare executions per second and allocation per execution of ReflectionJob in each instance scope with the former
+ * path, which looked up the method, created an instance and invoked through Method.invoke on every execution
+ */
+public class ReflectionBenchmark {
+    private static final Logger logger = LogManager.getLogger(ReflectionBenchmark.class);
+
+    public static class Adder {
+        private long sum = 0;
+
+        public boolean add(Long value) {
+            sum += value;
+            return true;
+        }
+    }
+
+    public static void main(String[] arg) throws JobException {
+        int executeNum = arg.length > 0 ? Integer.parseInt(arg[0]) : 2000000;
+        int rounds = 5;
+
+        Object[] parameters = {Long.valueOf(1)};
+        Job legacy = new LegacyReflectionJob(Adder.class, "add", parameters);
+
+        for (int i = 0; i < rounds; i++) {
+            boolean report = i == rounds - 1;
+            run("legacy", executeNum, report, legacy);
+            for (ReflectionJob.InstanceScope instanceScope : ReflectionJob.InstanceScope.values()) {
+                ReflectionJob job = new ReflectionJob();
+                job.setClassName(Adder.class.getName());
+                job.setMethodName("add");
+                job.setParameters(parameters);
+                job.setInstanceScope(instanceScope);
+                run(instanceScope.name().toLowerCase(), executeNum, report, job);
+            }
+        }
+    }
+
+    private static void run(String name, int executeNum, boolean report, Job job) throws JobException {
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < executeNum; i++) {
+            job.execute();
+        }
+        long used = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        if (report) {
+            logger.info(String.format("job=%s; executions=%d; rate=%d executions/s; time=%d ns/execution; allocation=%d bytes/execution", name,
+                    executeNum, executeNum * 1000000000L / used, used / executeNum, allocated / executeNum));
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /*
+     * Execution as implemented before the method was resolved into method handles
+     */
+    private static class LegacyReflectionJob extends AbstractJob {
+        private final Class<?> clazz;
+        private final String methodName;
+        private final Object[] parameters;
+        private Method method;
+
+        private LegacyReflectionJob(Class<?> clazz, String methodName, Object[] parameters) {
+            this.clazz = clazz;
+            this.methodName = methodName;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public boolean execute() throws JobException {
+            Class<?>[] paramClasses = new Class<?>[this.parameters.length];
+            for (int i = 0; i < this.parameters.length; i++) {
+                paramClasses[i] = this.parameters[i].getClass();
+            }
+            try {
+                Object object = this.clazz.getDeclaredConstructor().newInstance();
+                if (this.method == null) {
+                    this.method = this.clazz.getMethod(this.methodName, paramClasses);
+                }
+                this.method.invoke(object, this.parameters);
+            } catch (Exception e) {
+                throw new JobException(e);
+            }
+            return true;
+        }
+    }
+}
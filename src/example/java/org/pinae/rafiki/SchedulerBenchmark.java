@@ -0,0 +1,90 @@
+package org.pinae.rafiki;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.pinae.rafiki.task.scheduler.HashedWheelScheduler;
+
+/**
+ * Compare arm/cancel cost and memory per scheduled task of ScheduledThreadPoolExecutor and HashedWheelScheduler
+ * <p>
+ * Memory is measured on the live heap after a full GC, arm/cancel cost from a single thread
+ */
+public class SchedulerBenchmark {
+    private static final Logger logger = LogManager.getLogger(SchedulerBenchmark.class);
+
+    private static final Runnable NOOP = () -> {
+    };
+
+    public static void main(String[] arg) throws InterruptedException {
+        int taskNum = arg.length > 0 ? Integer.parseInt(arg[0]) : 200000;
+        int rounds = 5;
+
+        for (int i = 0; i < rounds; i++) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+            executor.setRemoveOnCancelPolicy(true);
+            run("executor", executor, taskNum, i == rounds - 1);
+
+            run("wheel", new HashedWheelScheduler("benchmark"), taskNum, i == rounds - 1);
+        }
+    }
+
+    private static void run(String name, ScheduledExecutorService scheduler, int taskNum, boolean report) throws InterruptedException {
+        Random random = new Random(taskNum);
+        ScheduledFuture<?>[] futures = new ScheduledFuture<?>[taskNum];
+
+        long usedBefore = usedMemory();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < taskNum; i++) {
+            // Delays between 1 hour and 1 day, like cron tasks waiting for their next fire time
+            long delay = TimeUnit.HOURS.toMillis(1) + random.nextInt((int) TimeUnit.HOURS.toMillis(23));
+            futures[i] = scheduler.schedule(NOOP, delay, TimeUnit.MILLISECONDS);
+        }
+        long armNanos = System.nanoTime() - start;
+
+        // Let the wheel move armed tasks into its buckets before measuring
+        TimeUnit.MILLISECONDS.sleep(200);
+        long usedAfter = usedMemory();
+
+        start = System.nanoTime();
+        for (int i = 0; i < taskNum; i++) {
+            futures[i].cancel(false);
+        }
+        long cancelNanos = System.nanoTime() - start;
+
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+
+        if (report) {
+            logger.info(String.format("scheduler=%s; tasks=%d; arm=%d ns/op; cancel=%d ns/op; memory=%d bytes/task", name, taskNum,
+                    armNanos / taskNum, cancelNanos / taskNum, (usedAfter - usedBefore) / taskNum));
+        }
+    }
+
+    /*
+     * Live heap size from a class histogram, which runs a full GC first (HotSpot only)
+     */
+    private static long usedMemory() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            String histogram = (String) server.invoke(new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram",
+                    new Object[]{null}, new String[]{String[].class.getName()});
+            String[] lines = histogram.trim().split("\\n");
+            String[] total = lines[lines.length - 1].trim().split("\\s+");
+            return Long.parseLong(total[2]);
+        } catch (Exception e) {
+            logger.error(String.format("Histogram Exception: exception=%s", e.getMessage()));
+            return 0;
+        }
+    }
+}
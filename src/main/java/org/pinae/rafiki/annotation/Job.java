@@ -6,9 +6,13 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.pinae.rafiki.job.impl.ReflectionJob;
+
 @Documented
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Job {
     String name();
+
+    ReflectionJob.InstanceScope scope() default ReflectionJob.InstanceScope.PER_FIRING;
 }
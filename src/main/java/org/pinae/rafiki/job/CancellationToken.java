@@ -0,0 +1,42 @@
+package org.pinae.rafiki.job;
+
+/**
+ * Cancellation token of a job execution
+ * <p>
+ * A long running job checks the token of its execution, see TaskRunner.current(), and returns early once it is
+ * cancelled, for example because the execution exceeded the timeout of its task. Jobs blocking in interruptible
+ * calls are also interrupted, depending on the timeout policy of the task
+ *
+ * @author Huiyugeng
+ */
+public final class CancellationToken {
+
+    private volatile boolean cancelled = false;
+
+    /**
+     * Whether the execution was cancelled
+     *
+     * @return true if the job should stop
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Throw if the execution was cancelled
+     *
+     * @throws JobException The execution was cancelled
+     */
+    public void throwIfCancelled() throws JobException {
+        if (cancelled) {
+            throw new JobException("Job execution cancelled");
+        }
+    }
+
+    /**
+     * Cancel the execution
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+}
@@ -0,0 +1,37 @@
+package org.pinae.rafiki.job;
+
+import org.pinae.rafiki.task.TaskRunner;
+
+/**
+ * Job receiving the context of each execution
+ * <p>
+ * The task runner passes the context of the execution directly, without looking it up or allocating it per firing
+ *
+ * @author Huiyugeng
+ */
+public interface ContextJob extends Job {
+
+    /**
+     * Job executor method
+     *
+     * @param context Context of the execution, only valid until the method returns
+     * @return Whether the job was successfully executed or not
+     * @throws JobException Job execution exception
+     */
+    public boolean execute(JobContext context) throws JobException;
+
+    /**
+     * Execute the job with the context of the execution on the current thread
+     *
+     * @return Whether the job was successfully executed or not
+     * @throws JobException Job execution exception, or the job is not executed by a task
+     */
+    @Override
+    public default boolean execute() throws JobException {
+        TaskRunner runner = TaskRunner.current();
+        if (runner == null) {
+            throw new JobException(String.format("job=%s; No job context outside of a task execution", getName()));
+        }
+        return execute(runner.getJobContext());
+    }
+}
@@ -0,0 +1,70 @@
+package org.pinae.rafiki.job;
+
+import java.util.Map;
+
+import org.pinae.rafiki.task.Task;
+
+/**
+ * Context of a job execution
+ * <p>
+ * Passed to every execution of a ContextJob. The context object is reused by later executions of the same task,
+ * so it is only valid until the execution returns and must not be kept by the job. Values to keep from one execution
+ * to the next go into the data map of the task
+ *
+ * @author Huiyugeng
+ */
+public interface JobContext {
+
+    /**
+     * Get the time the firing was scheduled for
+     * <p>
+     * Retries keep the scheduled fire time of the firing they retry
+     *
+     * @return Scheduled fire time (ms)
+     */
+    public long getScheduledFireTime();
+
+    /**
+     * Get the time the job execution started
+     *
+     * @return Actual fire time (ms)
+     */
+    public long getFireTime();
+
+    /**
+     * Get the attempt of the firing
+     *
+     * @return 1 for the first execution of a firing, more for its retries
+     */
+    public int getAttempt();
+
+    /**
+     * Get the task of the job
+     *
+     * @return Task
+     */
+    public Task getTask();
+
+    /**
+     * Get the name of the task group of the task
+     *
+     * @return Task group name
+     */
+    public String getGroupName();
+
+    /**
+     * Get the data map of the task
+     * <p>
+     * The map is shared by all executions of the task, also concurrent ones, and kept when the task restarts
+     *
+     * @return Data map
+     */
+    public Map<String, Object> getData();
+
+    /**
+     * Get the cancellation token of the execution
+     *
+     * @return Cancellation token
+     */
+    public CancellationToken getCancellationToken();
+}
@@ -1,48 +1,391 @@
 package org.pinae.rafiki.job.impl;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.LineNumberReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.pinae.rafiki.job.AbstractJob;
 import org.pinae.rafiki.job.JobException;
+import org.pinae.rafiki.task.scheduler.NamedThreadFactory;
 
 /**
  * This class supports executing local jobs with a given command
+ * <p>
+ * Standard output and standard error are drained while the command runs, so a command writing much output never
+ * blocks on a full pipe. Each execution keeps only the last output characters up to the output limit, and may pass
+ * every line to an output sink. A command running longer than the timeout is destroyed with all its descendants.
+ * Output is read by daemon threads shared by all native jobs
+ * <p>
+ * Unlike earlier versions, getResult returns the output of the latest execution only, line terminators included,
+ * instead of the output of all executions joined without line terminators. An execution succeeds whatever the exit
+ * code of the command, unless setFailOnExitCode(true) is set
  *
  * @author Huiyugeng
  */
 public class NativeJob extends AbstractJob {
+    private static final Logger logger = LogManager.getLogger(NativeJob.class);
+
+    /**
+     * Output stream of the command
+     */
+    public enum OutputType {
+        STDOUT, STDERR
+    }
+
+    /**
+     * Receiver of the output of the command
+     * <p>
+     * Called from the output reader threads, lines of standard output and standard error may arrive concurrently
+     */
+    public interface OutputSink {
+
+        /**
+         * Receive one line of output
+         *
+         * @param type Output stream the line was read from
+         * @param line Line without line terminator, lines longer than the output limit are split
+         */
+        public void write(OutputType type, String line);
+    }
+
+    /*
+     * Reader threads shared by all native jobs, idle threads end after one minute
+     */
+    private static final ExecutorService READERS = Executors.newCachedThreadPool(new NamedThreadFactory("rafiki-native-output", true));
+
+    /*
+     * Time to wait for the output readers after the command ended (ms)
+     */
+    private static final long DRAIN_TIMEOUT = 5000;
 
     private String command;
 
-    private StringBuffer result = new StringBuffer();
+    /*
+     * Maximum characters kept of each output stream
+     */
+    private int maxOutputSize = 64 * 1024;
+
+    /*
+     * Maximum execution time (ms), 0 to wait until the command ends
+     */
+    private long timeout = 0;
+
+    private OutputSink outputSink;
+
+    /*
+     * Whether a non-zero exit code fails the execution
+     */
+    private boolean failOnExitCode = false;
+
+    /*
+     * Outcome of the latest execution
+     */
+    private volatile OutputBuffer output = new OutputBuffer(0);
+    private volatile OutputBuffer error = new OutputBuffer(0);
+    private volatile int exitCode = -1;
+    private volatile boolean timedOut = false;
 
     public void setCommand(String command) {
         this.command = command;
     }
 
+    /**
+     * <p>Set the maximum characters kept of each output stream of an execution</p>
+     *
+     * <p>
+     * Default is 65536. Older output is dropped, the output sink still receives every line
+     * </p>
+     *
+     * @param maxOutputSize Maximum characters
+     */
+    public void setMaxOutputSize(int maxOutputSize) {
+        this.maxOutputSize = Math.max(maxOutputSize, 0);
+    }
+
+    /**
+     * <p>Set the maximum execution time</p>
+     *
+     * <p>
+     * A command still running after the timeout is destroyed with all its descendants, and the execution fails
+     * </p>
+     *
+     * @param timeout Maximum execution time (ms), 0 to wait until the command ends
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = Math.max(timeout, 0);
+    }
+
+    /**
+     * <p>Set whether a non-zero exit code of the command fails the execution</p>
+     *
+     * <p>
+     * Default is false, the execution succeeds whatever the exit code, unless the command timed out
+     * </p>
+     *
+     * @param failOnExitCode true to fail executions ending with a non-zero exit code
+     */
+    public void setFailOnExitCode(boolean failOnExitCode) {
+        this.failOnExitCode = failOnExitCode;
+    }
+
+    /**
+     * Set the receiver of every output line
+     *
+     * @param outputSink Output sink, null to keep only the last output
+     */
+    public void setOutputSink(OutputSink outputSink) {
+        this.outputSink = outputSink;
+    }
+
+    /**
+     * Get the standard output of the latest execution
+     *
+     * @return Last characters of the standard output, up to the output limit
+     */
     public String getResult() {
-        return result.toString();
+        return output.toString();
+    }
+
+    /**
+     * Get the standard error of the latest execution
+     *
+     * @return Last characters of the standard error, up to the output limit
+     */
+    public String getError() {
+        return error.toString();
+    }
+
+    /**
+     * Get the exit code of the latest execution
+     *
+     * @return Exit code, -1 before the first execution
+     */
+    public int getExitCode() {
+        return exitCode;
     }
 
+    /**
+     * Whether the latest execution was destroyed because it exceeded the timeout
+     *
+     * @return true if the command timed out
+     */
+    public boolean isTimeout() {
+        return timedOut;
+    }
+
+    /**
+     * Execute the command
+     *
+     * @return true if the command ended in time, with exit code 0 if non-zero exit codes fail the execution
+     * @throws JobException The command could not be started, or the waiting thread was interrupted
+     */
     @Override
     public boolean execute() throws JobException {
-        if (command != null && !command.equals("")) {
+        if (command == null || command.trim().equals("")) {
+            return true;
+        }
+
+        // Split the command at white space, like Runtime.exec(String)
+        List<String> commandList = new ArrayList<String>();
+        StringTokenizer tokenizer = new StringTokenizer(command);
+        while (tokenizer.hasMoreTokens()) {
+            commandList.add(tokenizer.nextToken());
+        }
+
+        OutputBuffer output = new OutputBuffer(this.maxOutputSize);
+        OutputBuffer error = new OutputBuffer(this.maxOutputSize);
+        this.output = output;
+        this.error = error;
+        this.exitCode = -1;
+        this.timedOut = false;
+
+        Process process;
+        try {
+            process = new ProcessBuilder(commandList).start();
+        } catch (IOException e) {
+            throw new JobException(e);
+        }
+
+        try {
+            process.getOutputStream().close();
+        } catch (IOException e) {
+            // The command does not read its input
+        }
+
+        OutputSink outputSink = this.outputSink;
+        Future<?> outputReader = READERS.submit(() -> drain(process.getInputStream(), OutputType.STDOUT, output, outputSink));
+        Future<?> errorReader = READERS.submit(() -> drain(process.getErrorStream(), OutputType.STDERR, error, outputSink));
+
+        try {
+            boolean ended = true;
+            if (this.timeout > 0) {
+                ended = process.waitFor(this.timeout, TimeUnit.MILLISECONDS);
+            } else {
+                process.waitFor();
+            }
+
+            if (!ended) {
+                this.timedOut = true;
+                logger.warn(String.format("job=%s; command=%s; action=timeout; timeout=%d ms", getName(), command, this.timeout));
+                destroy(process);
+                process.waitFor(DRAIN_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+
+            await(outputReader, process.getInputStream());
+            await(errorReader, process.getErrorStream());
+        } catch (InterruptedException e) {
+            destroy(process);
+            Thread.currentThread().interrupt();
+            throw new JobException(e);
+        }
+
+        if (process.isAlive()) {
+            return false;
+        }
+        this.exitCode = process.exitValue();
+        return !this.timedOut && (this.exitCode == 0 || !this.failOnExitCode);
+    }
+
+    /*
+     * Destroy the process and all its descendants. The process goes first, so it cannot start anything after
+     * its descendants were destroyed
+     */
+    private static void destroy(Process process) {
+        List<ProcessHandle> descendants = new ArrayList<ProcessHandle>();
+        process.descendants().forEach(descendants::add);
+        process.destroyForcibly();
+        descendants.forEach(ProcessHandle::destroyForcibly);
+    }
+
+    /*
+     * Wait for an output reader, which ends when the output stream closes
+     */
+    private void await(Future<?> reader, InputStream stream) throws InterruptedException {
+        try {
+            reader.get(DRAIN_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            logger.debug(String.format("job=%s; command=%s; exception=%s", getName(), command, e.getCause()));
+        } catch (TimeoutException e) {
+            // A descendant not destroyed still holds the stream open, an interrupt does not end a blocking read
             try {
-                Process process = Runtime.getRuntime().exec(command);
-                InputStreamReader streamReader = new InputStreamReader(process.getInputStream());
-                LineNumberReader lineReader = new LineNumberReader(streamReader);
+                stream.close();
+            } catch (IOException ex) {
+                logger.debug(String.format("job=%s; command=%s; action=close; exception=%s", getName(), command, ex.getMessage()));
+            }
+            reader.cancel(true);
+        }
+    }
+
+    /*
+     * Read an output stream until it closes
+     */
+    private static Void drain(InputStream stream, OutputType type, OutputBuffer buffer, OutputSink outputSink) throws IOException {
+        char[] chars = new char[8192];
+        StringBuilder line = outputSink != null ? new StringBuilder() : null;
+        int lineLimit = Math.max(buffer.capacity(), 1);
+
+        try (Reader reader = new InputStreamReader(stream)) {
+            int count;
+            while ((count = reader.read(chars)) >= 0) {
+                buffer.append(chars, count);
+
+                if (line != null) {
+                    for (int i = 0; i < count; i++) {
+                        char c = chars[i];
+                        if (c == '\n' || line.length() >= lineLimit) {
+                            writeLine(outputSink, type, line);
+                        }
+                        if (c != '\n' && c != '\r') {
+                            line.append(c);
+                        }
+                    }
+                }
+            }
+        }
+        if (line != null && line.length() > 0) {
+            writeLine(outputSink, type, line);
+        }
+        return null;
+    }
+
+    private static void writeLine(OutputSink outputSink, OutputType type, StringBuilder line) {
+        try {
+            outputSink.write(type, line.toString());
+        } catch (RuntimeException e) {
+            logger.debug(String.format("type=%s; action=write; exception=%s", type, e.getMessage()));
+        }
+        line.setLength(0);
+    }
+
+    /*
+     * Ring buffer keeping the last characters written to it. It grows with the output, so short output does not
+     * allocate the whole capacity
+     */
+    private static final class OutputBuffer {
+        private static final char[] EMPTY = new char[0];
+
+        private final int capacity;
+        private char[] chars = EMPTY;
+
+        /*
+         * Total characters written, the next character goes to index (length % capacity) once the buffer is full
+         */
+        private long length = 0;
 
-                String line = null;
-                while ((line = lineReader.readLine()) != null) {
-                    result.append(line);
+        private OutputBuffer(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private int capacity() {
+            return this.capacity;
+        }
+
+        private synchronized void append(char[] source, int count) {
+            int capacity = this.capacity;
+            if (capacity == 0) {
+                return;
+            }
+            if (this.chars.length < capacity) {
+                long needed = this.length + count;
+                if (needed > this.chars.length) {
+                    int size = (int) Math.min(capacity, Math.max(needed, Math.max(this.chars.length * 2L, 256)));
+                    this.chars = Arrays.copyOf(this.chars, size);
                 }
-            } catch (IOException e) {
-                throw new JobException(e);
+                if (needed <= this.chars.length) {
+                    System.arraycopy(source, 0, this.chars, (int) this.length, count);
+                    this.length = needed;
+                    return;
+                }
+            }
+            // Full size, older characters are overwritten
+            int offset = count > capacity ? count - capacity : 0;
+            for (int i = offset; i < count; i++) {
+                this.chars[(int) ((this.length + i) % capacity)] = source[i];
             }
+            this.length += count;
         }
 
-        return true;
+        @Override
+        public synchronized String toString() {
+            int capacity = this.capacity;
+            if (this.length <= capacity) {
+                return new String(this.chars, 0, (int) this.length);
+            }
+            int start = (int) (this.length % capacity);
+            return new String(this.chars, start, capacity - start) + new String(this.chars, 0, start);
+        }
     }
 }
@@ -1,27 +1,53 @@
 package org.pinae.rafiki.job.impl;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.pinae.rafiki.job.AbstractJob;
 import org.pinae.rafiki.job.JobException;
 
 /**
  * Execute job in a given class by executing a given method with given parameters
- * All execution happens via Reflection API
+ * <p>
+ * Class, constructor and method are resolved on the first execution into method handles, later executions only
+ * invoke them. Changing the class, method or parameters resolves them again on the next execution
  *
  * @author Huiyugeng
  */
 public class ReflectionJob extends AbstractJob {
 
+    /**
+     * Instances the method is executed on
+     * <p>
+     * PER_FIRING: A new instance for each execution
+     * SINGLETON: One instance for all executions of the job, executions may run concurrently
+     * POOLED: An instance used by one execution at a time, reused by later executions
+     */
+    public enum InstanceScope {
+        PER_FIRING, SINGLETON, POOLED
+    }
+
     private Class<?> clazz;
-    private Object object;
 
     private String methodName;
     private Method method;
 
     private Object[] parameters;
 
-    private Object result;
+    private InstanceScope instanceScope = InstanceScope.PER_FIRING;
+
+    private volatile Object result;
+
+    /*
+     * Resolved method handles, null until the first execution and after every change
+     */
+    private volatile Invoker invoker;
 
     public ReflectionJob() {
 
@@ -32,24 +58,47 @@ public class ReflectionJob extends AbstractJob {
         this.method = method;
     }
 
-    public void setClassName(String className) throws JobException {
+    public synchronized void setClassName(String className) throws JobException {
         try {
             this.clazz = Class.forName(className);
         } catch (ClassNotFoundException e) {
             throw new JobException(e);
         }
+        this.invoker = null;
     }
 
-    public void setMethod(Method method) {
+    public synchronized void setMethod(Method method) {
         this.method = method;
+        this.invoker = null;
     }
 
-    public void setMethodName(String methodName) {
+    public synchronized void setMethodName(String methodName) {
         this.methodName = methodName;
+        this.method = null;
+        this.invoker = null;
     }
 
-    public void setParameters(Object[] parameters) {
+    public synchronized void setParameters(Object[] parameters) {
         this.parameters = parameters;
+        this.invoker = null;
+    }
+
+    public InstanceScope getInstanceScope() {
+        return this.instanceScope;
+    }
+
+    /**
+     * <p>Set the instances the method is executed on</p>
+     *
+     * <p>
+     * Default is InstanceScope.PER_FIRING. Static methods are executed without an instance
+     * </p>
+     *
+     * @param instanceScope Instance scope
+     */
+    public synchronized void setInstanceScope(InstanceScope instanceScope) {
+        this.instanceScope = instanceScope != null ? instanceScope : InstanceScope.PER_FIRING;
+        this.invoker = null;
     }
 
     public Object getResult() {
@@ -57,25 +106,148 @@ public class ReflectionJob extends AbstractJob {
     }
 
     @Override
-    @SuppressWarnings("rawtypes")
     public boolean execute() throws JobException {
-        Class[] paramClasses = null;
-        if (this.parameters != null) {
-            paramClasses = new Class[this.parameters.length];
-            for (int i = 0; i < this.parameters.length; i++) {
-                paramClasses[i] = this.parameters[i].getClass();
-            }
+        Invoker invoker = this.invoker;
+        if (invoker == null) {
+            invoker = resolve();
         }
+
+        Object object = invoker.acquire();
         try {
-            this.object = this.clazz.getDeclaredConstructor().newInstance();
-            if (method == null && methodName != null) {
-                this.method = this.clazz.getMethod(this.methodName, paramClasses);
-            }
-            this.result = method.invoke(this.object, this.parameters);
-        } catch (Exception e) {
+            this.result = invoker.method.invokeExact(object, invoker.parameters);
+        } catch (Throwable e) {
             throw new JobException(e);
+        } finally {
+            invoker.release(object);
         }
 
         return true;
     }
+
+    /*
+     * Resolve the class, constructor and method into method handles
+     */
+    private synchronized Invoker resolve() throws JobException {
+        if (this.invoker != null) {
+            return this.invoker;
+        }
+
+        Class<?> clazz = this.clazz != null ? this.clazz : this.method != null ? this.method.getDeclaringClass() : null;
+        if (clazz == null) {
+            throw new JobException("No class to execute");
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            Method method = this.method;
+            if (method == null && this.methodName != null) {
+                Class<?>[] paramClasses = null;
+                if (this.parameters != null) {
+                    paramClasses = new Class<?>[this.parameters.length];
+                    for (int i = 0; i < this.parameters.length; i++) {
+                        paramClasses[i] = this.parameters[i].getClass();
+                    }
+                }
+                method = clazz.getMethod(this.methodName, paramClasses);
+            }
+            if (method == null) {
+                throw new JobException(String.format("class=%s; No method to execute", clazz.getName()));
+            }
+
+            // Adapt to (Object instance, Object[] parameters) -> Object, so every method is invoked the same way
+            MethodHandle methodHandle = lookup.unreflect(method).asFixedArity();
+            boolean isStatic = Modifier.isStatic(method.getModifiers());
+            if (isStatic) {
+                methodHandle = MethodHandles.dropArguments(methodHandle, 0, Object.class);
+            }
+            int parameterCount = method.getParameterCount();
+            methodHandle = methodHandle.asType(MethodType.genericMethodType(parameterCount + 1)).asSpreader(Object[].class, parameterCount);
+
+            MethodHandle constructor = null;
+            if (!isStatic) {
+                constructor = lookup.unreflectConstructor(clazz.getDeclaredConstructor()).asType(MethodType.methodType(Object.class));
+            }
+
+            Invoker invoker = new Invoker(methodHandle, constructor, isStatic ? null : this.instanceScope, this.parameters);
+            this.invoker = invoker;
+            return invoker;
+        } catch (ReflectiveOperationException e) {
+            throw new JobException(e);
+        }
+    }
+
+    /*
+     * Resolved method handles and the instances they are executed on
+     */
+    private static final class Invoker {
+        private final MethodHandle method;
+        private final MethodHandle constructor;
+        private final InstanceScope instanceScope;
+        private final Object[] parameters;
+
+        /*
+         * Instance of the SINGLETON scope, created by the first execution
+         */
+        private volatile Object singleton;
+
+        /*
+         * Idle instances of the POOLED scope, one in a slot taken without allocation when executions do not overlap,
+         * the others in the pool
+         */
+        private final AtomicReference<Object> idle = new AtomicReference<Object>();
+        private final Queue<Object> pool = new ConcurrentLinkedQueue<Object>();
+
+        private Invoker(MethodHandle method, MethodHandle constructor, InstanceScope instanceScope, Object[] parameters) {
+            this.method = method;
+            this.constructor = constructor;
+            this.instanceScope = instanceScope;
+            this.parameters = parameters;
+        }
+
+        /*
+         * Instance for one execution, null for static methods
+         */
+        private Object acquire() throws JobException {
+            if (this.instanceScope == null) {
+                return null;
+            }
+            if (this.instanceScope == InstanceScope.SINGLETON) {
+                Object singleton = this.singleton;
+                if (singleton == null) {
+                    synchronized (this) {
+                        singleton = this.singleton;
+                        if (singleton == null) {
+                            singleton = newInstance();
+                            this.singleton = singleton;
+                        }
+                    }
+                }
+                return singleton;
+            }
+            if (this.instanceScope == InstanceScope.POOLED) {
+                Object object = this.idle.getAndSet(null);
+                if (object == null) {
+                    object = this.pool.poll();
+                }
+                if (object != null) {
+                    return object;
+                }
+            }
+            return newInstance();
+        }
+
+        private void release(Object object) {
+            if (object != null && this.instanceScope == InstanceScope.POOLED && !this.idle.compareAndSet(null, object)) {
+                this.pool.offer(object);
+            }
+        }
+
+        private Object newInstance() throws JobException {
+            try {
+                return (Object) this.constructor.invokeExact();
+            } catch (Throwable e) {
+                throw new JobException(e);
+            }
+        }
+    }
 }
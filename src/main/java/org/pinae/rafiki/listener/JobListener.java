@@ -26,4 +26,13 @@ public interface JobListener {
      * When the job execution throws an exception
      */
     public void executeException();
+
+    /**
+     * When the job execution exceeds the timeout of its task
+     * <p>
+     * Called from a timeout thread shared by all tasks while the job is still executing, before the timeout policy
+     * is applied. The timer of the task group is not blocked by it
+     */
+    public default void executeTimeout() {
+    }
 }
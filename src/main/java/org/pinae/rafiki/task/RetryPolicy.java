@@ -0,0 +1,219 @@
+package org.pinae.rafiki.task;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry policy of a task
+ * <p>
+ * A job execution which returns false or throws is executed again after a backoff delay, until it succeeds or
+ * the maximum number of attempts is reached. The delay grows exponentially from the initial delay up to the maximum
+ * delay, and a random part of it is dropped (jitter) so tasks failing together do not retry together.
+ * Retries are armed on the timer of the task group like any other run, no worker waits during the backoff.
+ *
+ * @author Huiyugeng
+ */
+public class RetryPolicy {
+
+    /*
+     * Attempts including the first execution, default 3
+     */
+    private int maxAttempts = 3;
+
+    /*
+     * Delay before the first retry (ms), default 1000
+     */
+    private long initialDelay = 1000;
+
+    /*
+     * Maximum delay before a retry (ms), default 60000
+     */
+    private long maxDelay = 60000;
+
+    /*
+     * Factor applied to the delay after each retry, default 2
+     */
+    private double multiplier = 2;
+
+    /*
+     * Part of each delay which is randomized, 0 for fixed delays, 1 for delays between 0 and the backoff, default 0.5
+     */
+    private double jitter = 0.5;
+
+    /*
+     * Whether an execution returning false is retried, default true
+     */
+    private boolean retryOnFail = true;
+
+    /*
+     * Exceptions which are retried, all exceptions if empty. Replaced as a whole, so executions always see a consistent array
+     */
+    private volatile Class<?>[] retryOn = new Class<?>[0];
+
+    /**
+     * Constructor, 3 attempts starting 1 second apart
+     */
+    public RetryPolicy() {
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxAttempts  Attempts including the first execution
+     * @param initialDelay Delay before the first retry (ms)
+     */
+    public RetryPolicy(int maxAttempts, long initialDelay) {
+        setMaxAttempts(maxAttempts);
+        setInitialDelay(initialDelay);
+    }
+
+    /**
+     * Get the delay before the next attempt
+     * <p>
+     * The backoff is min(maxDelay, initialDelay * multiplier ^ (attempt - 1)), of which a random part up to jitter
+     * is dropped
+     *
+     * @param attempt Attempt which has failed, 1 for the first execution
+     * @return Delay (ms)
+     */
+    public long getDelay(int attempt) {
+        double backoff = Math.min(this.initialDelay * Math.pow(this.multiplier, Math.max(attempt - 1, 0)), this.maxDelay);
+        if (this.jitter > 0) {
+            backoff -= backoff * this.jitter * ThreadLocalRandom.current().nextDouble();
+        }
+        return Math.round(backoff);
+    }
+
+    /**
+     * Whether a failed attempt is retried
+     *
+     * @param attempt Attempt which has failed, 1 for the first execution
+     * @param cause   Exception thrown by the job, null if the job returned false
+     * @return true if there are attempts left and the failure is retryable
+     */
+    public boolean isRetry(int attempt, Throwable cause) {
+        if (attempt >= this.maxAttempts) {
+            return false;
+        }
+        return cause == null ? this.retryOnFail : isRetryable(cause);
+    }
+
+    /**
+     * Whether an exception is retried
+     * <p>
+     * The exception and its causes are checked, so an exception wrapped in a JobException is retried as well
+     *
+     * @param cause Exception thrown by the job
+     * @return true if no retryable exceptions are set, or the exception or one of its causes is one of them
+     */
+    public boolean isRetryable(Throwable cause) {
+        Class<?>[] retryOn = this.retryOn;
+        if (retryOn.length == 0) {
+            return true;
+        }
+        for (Throwable throwable = cause; throwable != null; throwable = throwable.getCause() != throwable ? throwable.getCause() : null) {
+            for (Class<?> retryable : retryOn) {
+                if (retryable.isInstance(throwable)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Set the maximum number of attempts
+     *
+     * @param maxAttempts Attempts including the first execution, 1 for no retry
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1: " + maxAttempts);
+        }
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    /**
+     * Set the delay before the first retry
+     *
+     * @param initialDelay Delay (ms)
+     */
+    public void setInitialDelay(long initialDelay) {
+        this.initialDelay = Math.max(initialDelay, 0);
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * Set the maximum delay before a retry
+     *
+     * @param maxDelay Delay (ms)
+     */
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = Math.max(maxDelay, 0);
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * Set the factor applied to the delay after each retry
+     *
+     * @param multiplier Factor, 1 for a constant delay
+     */
+    public void setMultiplier(double multiplier) {
+        if (!(multiplier >= 1)) {
+            throw new IllegalArgumentException("multiplier must be at least 1: " + multiplier);
+        }
+        this.multiplier = multiplier;
+    }
+
+    public double getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Set the part of each delay which is randomized
+     *
+     * @param jitter 0 for fixed delays, up to 1 for delays between 0 and the backoff
+     */
+    public void setJitter(double jitter) {
+        if (!(jitter >= 0 && jitter <= 1)) {
+            throw new IllegalArgumentException("jitter must be between 0 and 1: " + jitter);
+        }
+        this.jitter = jitter;
+    }
+
+    public boolean isRetryOnFail() {
+        return retryOnFail;
+    }
+
+    /**
+     * Set whether an execution returning false is retried
+     *
+     * @param retryOnFail true to retry executions returning false
+     */
+    public void setRetryOnFail(boolean retryOnFail) {
+        this.retryOnFail = retryOnFail;
+    }
+
+    /**
+     * Retry only the given exceptions, and exceptions caused by them
+     *
+     * @param retryOn Retryable exception classes, empty to retry all exceptions
+     */
+    public void setRetryOn(List<Class<? extends Throwable>> retryOn) {
+        this.retryOn = retryOn.toArray(new Class<?>[0]);
+    }
+}
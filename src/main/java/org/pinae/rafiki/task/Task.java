@@ -13,6 +13,48 @@ public class Task {
         STOP, RUNNING, PAUSE
     }
 
+    /**
+     * Policy applied when a firing starts later than the misfire threshold after its fire time,
+     * for example because the workers were saturated or the previous run took longer than the repeat interval:
+     * <ul>
+     * <li>SKIP: Drop the late firing and continue with the next fire time of the original schedule</li>
+     * <li>FIRE_ONCE_NOW: Run once now for all missed firings and continue with the next fire time of the original schedule</li>
+     * <li>FIRE_ALL_MISSED: Run every missed firing back to back until the schedule has caught up</li>
+     * <li>RESCHEDULE_NEXT: Drop the late firing and restart the schedule one repeat interval from now</li>
+     * </ul>
+     * Misfires only apply to the FIXED_RATE and NEXT_FIRE_TIME schedule modes, FIXED_DELAY has no planned fire time
+     */
+    public enum MisfirePolicy {
+        SKIP, FIRE_ONCE_NOW, FIRE_ALL_MISSED, RESCHEDULE_NEXT
+    }
+
+    /**
+     * Policy applied when the task fires while its previous run is still executing:
+     * <ul>
+     * <li>ALLOW: Run the firing concurrently with the previous run</li>
+     * <li>SKIP_IF_RUNNING: Drop the firing, counted as skipped</li>
+     * <li>QUEUE_ONE: Run the first such firing right after the previous run, further firings are dropped and counted as skipped</li>
+     * <li>COALESCE: Merge all such firings into one run right after the previous run, counted as coalesced</li>
+     * </ul>
+     */
+    public enum ConcurrencyPolicy {
+        ALLOW, SKIP_IF_RUNNING, QUEUE_ONE, COALESCE
+    }
+
+    /**
+     * Policy applied when a job execution exceeds the timeout of its task:
+     * <ul>
+     * <li>NOTIFY: Only notify the job listener and log the timeout</li>
+     * <li>INTERRUPT: Also cancel the cancellation token of the execution and interrupt the thread executing the job</li>
+     * <li>ABANDON: Interrupt, and if the job has not returned after the abandon delay, release its worker permit to other
+     * tasks and add a replacement worker, the abandoned thread ends when the job returns. The next firing of a repeating
+     * task runs without waiting for the abandoned job</li>
+     * </ul>
+     */
+    public enum TimeoutPolicy {
+        NOTIFY, INTERRUPT, ABANDON
+    }
+
     /*
      * Task sequence number, globally unique, task sequence number = task name - timestamp
      */
@@ -43,6 +85,41 @@ public class Task {
      */
     private long timeout;
 
+    /*
+     * Timeout policy, default INTERRUPT
+     */
+    private TimeoutPolicy timeoutPolicy = TimeoutPolicy.INTERRUPT;
+
+    /*
+     * How long after the timeout a job still executing is abandoned (ms), default 1000
+     */
+    private long abandonDelay = 1000;
+
+    /*
+     * Retry policy of failed job executions, null for no retry
+     */
+    private RetryPolicy retryPolicy;
+
+    /*
+     * Task scheduling mode, null means the scheduling mode of the task group
+     */
+    private TaskGroup.ScheduleMode scheduleMode;
+
+    /*
+     * Misfire policy, default FIRE_ONCE_NOW
+     */
+    private MisfirePolicy misfirePolicy = MisfirePolicy.FIRE_ONCE_NOW;
+
+    /*
+     * How late a firing may start before it is a misfire (ms), default 1000
+     */
+    private long misfireThreshold = 1000;
+
+    /*
+     * Concurrency policy, default SKIP_IF_RUNNING
+     */
+    private ConcurrencyPolicy concurrencyPolicy = ConcurrencyPolicy.SKIP_IF_RUNNING;
+
     /*
      * Task Executor
      */
@@ -196,6 +273,137 @@ public class Task {
         this.timeout = timeout;
     }
 
+    /**
+     * Get the timeout policy
+     *
+     * @return Timeout policy
+     */
+    public TimeoutPolicy getTimeoutPolicy() {
+        return timeoutPolicy;
+    }
+
+    /**
+     * Set the timeout policy
+     *
+     * @param timeoutPolicy Timeout policy
+     */
+    public void setTimeoutPolicy(TimeoutPolicy timeoutPolicy) {
+        this.timeoutPolicy = timeoutPolicy;
+    }
+
+    /**
+     * Get the abandon delay of the ABANDON timeout policy
+     *
+     * @return How long after the timeout a job still executing is abandoned (ms)
+     */
+    public long getAbandonDelay() {
+        return abandonDelay;
+    }
+
+    /**
+     * Set the abandon delay of the ABANDON timeout policy
+     *
+     * @param abandonDelay How long after the timeout a job still executing is abandoned (ms)
+     */
+    public void setAbandonDelay(long abandonDelay) {
+        this.abandonDelay = abandonDelay;
+    }
+
+    /**
+     * Get the retry policy of failed job executions
+     *
+     * @return Retry policy, null for no retry
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * <p>Set the retry policy of failed job executions</p>
+     *
+     * <p>
+     * A failed execution is retried after the backoff delay of the policy. The next regular firing is armed
+     * once the execution succeeded or the attempts are exhausted
+     * </p>
+     *
+     * @param retryPolicy Retry policy, null for no retry
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Get the task scheduling mode
+     *
+     * @return Task scheduling mode, null if the task uses the scheduling mode of its task group
+     */
+    public TaskGroup.ScheduleMode getScheduleMode() {
+        return scheduleMode;
+    }
+
+    /**
+     * Set the task scheduling mode, overrides the scheduling mode of the task group when the task starts
+     *
+     * @param scheduleMode Task scheduling mode, null to use the scheduling mode of the task group
+     */
+    public void setScheduleMode(TaskGroup.ScheduleMode scheduleMode) {
+        this.scheduleMode = scheduleMode;
+    }
+
+    /**
+     * Get the misfire policy
+     *
+     * @return Misfire policy
+     */
+    public MisfirePolicy getMisfirePolicy() {
+        return misfirePolicy;
+    }
+
+    /**
+     * Set the misfire policy
+     *
+     * @param misfirePolicy Misfire policy
+     */
+    public void setMisfirePolicy(MisfirePolicy misfirePolicy) {
+        this.misfirePolicy = misfirePolicy;
+    }
+
+    /**
+     * Get the misfire threshold
+     *
+     * @return How late a firing may start before it is a misfire (ms)
+     */
+    public long getMisfireThreshold() {
+        return misfireThreshold;
+    }
+
+    /**
+     * Set the misfire threshold
+     *
+     * @param misfireThreshold How late a firing may start before it is a misfire (ms)
+     */
+    public void setMisfireThreshold(long misfireThreshold) {
+        this.misfireThreshold = misfireThreshold;
+    }
+
+    /**
+     * Get the concurrency policy
+     *
+     * @return Concurrency policy
+     */
+    public ConcurrencyPolicy getConcurrencyPolicy() {
+        return concurrencyPolicy;
+    }
+
+    /**
+     * Set the concurrency policy
+     *
+     * @param concurrencyPolicy Concurrency policy
+     */
+    public void setConcurrencyPolicy(ConcurrencyPolicy concurrencyPolicy) {
+        this.concurrencyPolicy = concurrencyPolicy;
+    }
+
     /**
      * Get the task executor
      *
@@ -4,19 +4,39 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 import org.pinae.rafiki.StringUtils;
+import org.pinae.rafiki.task.scheduler.HashedWheelScheduler;
+import org.pinae.rafiki.task.scheduler.NamedThreadFactory;
+import org.pinae.rafiki.task.scheduler.RateLimiter;
 
 /**
  * Task Container
+ * <p>
+ * The task container owns a single dispatcher thread which arms the next run of every task and hands due tasks
+ * to the workers of their task group, so a slow job never delays the fire time of another task
  *
  * @author Huiyugeng
  */
 public class TaskContainer {
     private static final Logger logger = LogManager.getLogger(TaskContainer.class);
 
+    /**
+     * Scheduling engine of the dispatcher:
+     * <ul>
+     * <li>EXECUTOR: A single thread ScheduledThreadPoolExecutor, O(log n) arm and cancel</li>
+     * <li>TIMING_WHEEL: A hashed timing wheel, O(1) arm and cancel with a precision of one tick</li>
+     * </ul>
+     */
+    public enum Engine {
+        EXECUTOR, TIMING_WHEEL
+    }
+
     /*
      * Set the default container name to: default-container
      */
@@ -32,6 +52,22 @@ public class TaskContainer {
      */
     private final Map<String, TaskGroup> taskGroupMap = new ConcurrentHashMap<String, TaskGroup>();
 
+    /*
+     * Scheduling engine, default EXECUTOR
+     */
+    private final Engine engine;
+
+    /*
+     * Dispatcher shared by all task groups, hands due tasks to the workers of their task group.
+     * Shut down when the container stops and recreated when it starts again
+     */
+    private volatile ScheduledExecutorService dispatcher;
+
+    /*
+     * Rate limiter shared by all task groups, null for no limit
+     */
+    private volatile RateLimiter rateLimiter;
+
     /*
      * Maximum task group data volume, default 10
      */
@@ -53,7 +89,7 @@ public class TaskContainer {
      * Construct a task container named default and add a default task group
      */
     public TaskContainer() {
-        taskGroupMap.put(TaskGroup.DEFAULT, new TaskGroup(TaskGroup.DEFAULT));
+        this("default-container");
     }
 
     /**
@@ -64,8 +100,46 @@ public class TaskContainer {
      * @param name Task container name
      */
     public TaskContainer(String name) {
+        this(name, Engine.EXECUTOR);
+    }
+
+    /**
+     * Constructor
+     * <p>
+     * Constructs a task container with the specified name and scheduling engine and adds a default task group
+     *
+     * @param name   Task container name
+     * @param engine Scheduling engine
+     */
+    public TaskContainer(String name, Engine engine) {
         this.name = name;
-        taskGroupMap.put(TaskGroup.DEFAULT, new TaskGroup(TaskGroup.DEFAULT));
+        this.engine = engine;
+        this.dispatcher = newDispatcher();
+        taskGroupMap.put(TaskGroup.DEFAULT, new TaskGroup(TaskGroup.DEFAULT, 20, this.dispatcher));
+    }
+
+    private ScheduledExecutorService newDispatcher() {
+        if (this.engine == Engine.TIMING_WHEEL) {
+            // Keeps the JVM alive like the dispatcher thread of the default engine
+            HashedWheelScheduler scheduler = new HashedWheelScheduler(this.name);
+            scheduler.setDaemon(false);
+            return scheduler;
+        }
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory(this.name + "-dispatcher"));
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /*
+     * Recreate the dispatcher of a stopped container and hand it to all task groups
+     */
+    private synchronized void openDispatcher() {
+        if (this.dispatcher.isShutdown()) {
+            this.dispatcher = newDispatcher();
+            for (TaskGroup group : this.taskGroupMap.values()) {
+                group.setTimer(this.dispatcher);
+            }
+        }
     }
 
     /**
@@ -86,12 +160,31 @@ public class TaskContainer {
      * @return Added task group
      */
     public TaskGroup addGroup(String groupName, int maxTask) {
+        return addGroup(groupName, maxTask, null);
+    }
+
+    /**
+     * Add a task group to the task container whose jobs are executed by the given workers
+     * <p>
+     * Workers can be shared by several task groups, they are not shut down when the task group stops
+     *
+     * @param groupName Task Group Name
+     * @param maxTask   Maximum number of tasks in a task group
+     * @param workers   Workers executing the jobs, null to create up to maxTask worker threads for the task group
+     * @return Added task group
+     */
+    public TaskGroup addGroup(String groupName, int maxTask, ExecutorService workers) {
 
         TaskGroup group = null;
 
         if (!this.taskGroupMap.containsKey(groupName)) {
             if (this.groupCounter < this.maxGroup) {
-                group = new TaskGroup(groupName);
+                if (workers != null) {
+                    group = new TaskGroup(groupName, maxTask, this.dispatcher, workers);
+                } else {
+                    group = new TaskGroup(groupName, maxTask, this.dispatcher);
+                }
+                group.setContainerRateLimiter(this.rateLimiter);
                 this.taskGroupMap.put(groupName, group);
                 this.groupCounter++;
             } else {
@@ -118,10 +211,9 @@ public class TaskContainer {
             group = addGroup(groupName);
         }
 
-        int maxTask = group.getMaxTask();
-
         if (group != null) {
-            if (this.taskCounter < maxTask && task != null) {
+            int maxTask = group.getMaxTask();
+            if (group.getTasks().size() < maxTask && task != null) {
                 group.addTask(task);
                 this.taskGroupMap.put(groupName, group);
 
@@ -172,8 +264,8 @@ public class TaskContainer {
             Task task = group.removeTask(taskName);
             if (task != null) {
                 logger.debug(String.format("task=%s; group=%s; action=remove", task.getName(), groupName));
+                this.taskCounter--;
             }
-            this.taskCounter--;
         }
     }
 
@@ -217,6 +309,7 @@ public class TaskContainer {
     public void startTask(String taskName, String groupName) throws TaskException {
         TaskGroup group = this.taskGroupMap.get(groupName);
         if (group != null) {
+            openDispatcher();
             group.start(taskName);
         }
         logger.debug(String.format("task=%s, group=%s; action=start", taskName, groupName));
@@ -231,6 +324,7 @@ public class TaskContainer {
     public void startGroup(String groupName) throws TaskException {
         TaskGroup group = this.taskGroupMap.get(groupName);
         if (group != null) {
+            openDispatcher();
             group.start();
         }
         logger.debug(String.format("group=%s; action=start", groupName));
@@ -252,6 +346,7 @@ public class TaskContainer {
      * @throws TaskException Task container startup exception
      */
     public void start(boolean daemon) throws TaskException {
+        openDispatcher();
         if (daemon) {
             this.daemon.start();
         }
@@ -263,6 +358,28 @@ public class TaskContainer {
         }
     }
 
+    /**
+     * Restart all tasks in the task container (do not start the container daemon thread)
+     *
+     * @throws TaskException Task container restart exception
+     */
+    public void restart() throws TaskException {
+        restart(false);
+    }
+
+    /**
+     * Restart all tasks in the task container
+     * <p>
+     * Task groups and tasks are kept and the dispatcher and workers are recreated, so a restart costs no reload of the tasks
+     *
+     * @param daemon Whether to start the container daemon thread
+     * @throws TaskException Task container restart exception
+     */
+    public void restart(boolean daemon) throws TaskException {
+        stop();
+        start(daemon);
+    }
+
     /**
      * Pause all tasks in the task container
      *
@@ -367,6 +484,8 @@ public class TaskContainer {
                 this.stopGroup(groupName);
             }
         }
+
+        this.dispatcher.shutdown();
     }
 
     /**
@@ -391,6 +510,50 @@ public class TaskContainer {
         }
     }
 
+    /**
+     * Get the scheduling engine of the task container
+     *
+     * @return Scheduling engine
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Get the rate limiter of the task container
+     *
+     * @return Rate limiter, null if the task container has no rate limit
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Set the rate limiter of the task container, firings of all task groups above the rate are deferred
+     * <p>
+     * Applies in addition to the rate limiters of the task groups
+     *
+     * @param rateLimiter Rate limiter, null for no rate limit
+     */
+    public synchronized void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+        for (TaskGroup group : this.taskGroupMap.values()) {
+            group.setContainerRateLimiter(rateLimiter);
+        }
+    }
+
+    /**
+     * Get the number of runs armed on the dispatcher of the task container
+     *
+     * @return Number of armed runs
+     */
+    public int getQueueSize() {
+        if (this.dispatcher instanceof HashedWheelScheduler) {
+            return ((HashedWheelScheduler) this.dispatcher).size();
+        }
+        return ((ScheduledThreadPoolExecutor) this.dispatcher).getQueue().size();
+    }
+
     /**
      * Get the maximum number of task groups
      *
@@ -15,7 +15,10 @@ import org.pinae.rafiki.task.Task.Status;
 public class TaskContainerDaemon implements Runnable {
     private final Logger logger = LogManager.getLogger(TaskContainerDaemon.class);
 
-    private boolean stop = true;
+    /*
+     * Running daemon thread, null when stopped. A thread replaced by a restart exits on its next check
+     */
+    private volatile Thread thread;
 
     private final TaskContainer container;
 
@@ -33,10 +36,10 @@ public class TaskContainerDaemon implements Runnable {
      * <p>
 * Daemon thread is started by TaskContainer's start, startTask/startGroup will not start daemon thread
      */
-    public void start() {
-        if (stop) {
-            new Thread(this, String.format("%s Container-Deamon", container.getName())).start();
-            stop = false;
+    public synchronized void start() {
+        if (thread == null) {
+            thread = new Thread(this, String.format("%s Container-Deamon", container.getName()));
+            thread.start();
         }
     }
 
@@ -45,14 +48,18 @@ public class TaskContainerDaemon implements Runnable {
      * <p>
      * Daemon thread is started by TaskContainer's stop, stopTask/stopGroup will not stop daemon thread
      */
-    public void stop() {
-        stop = true;
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
     }
 
     public void run() {
-        while (!stop) {
+        while (thread == Thread.currentThread()) {
 
-            // Check whether the task in the task container has timed out, and force the timed out task to terminate
+            // Flag runs executing past their timeout. Executions are timed out by their deadline on the timer of the
+            // task group, this scan only catches runs which started without one, for example while the group was stopping
             Collection<TaskGroup> taskGroups = this.container.getTaskGroup();
             for (TaskGroup taskGroup : taskGroups) {
                 Collection<Task> tasks = taskGroup.getTasks();
@@ -77,6 +77,7 @@ public class TaskContainerLoader {
 
         ReflectionJob job = new ReflectionJob(clazz, method);
         job.setName(jobDef.name());
+        job.setInstanceScope(jobDef.scope());
 
         return job;
     }
@@ -2,15 +2,30 @@ package org.pinae.rafiki.task;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.pinae.rafiki.StringUtils;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 import org.pinae.rafiki.job.Job;
+import org.pinae.rafiki.task.scheduler.NamedThreadFactory;
+import org.pinae.rafiki.task.scheduler.RateLimiter;
+import org.pinae.rafiki.task.scheduler.VirtualThreads;
 import org.pinae.rafiki.trigger.Trigger;
 
 /**
@@ -35,6 +50,41 @@ public class TaskGroup {
         NOT_ANY_TASK, READY_TO_RUN, RUNNING
     }
 
+    /**
+     * Task scheduling mode:
+     * <ul>
+     * <li>FIXED_DELAY: Poll the trigger of each task one repeat interval after the previous run completes</li>
+     * <li>FIXED_RATE: Poll the trigger of each task every repeat interval from its start time, regardless of how long a run takes</li>
+     * <li>NEXT_FIRE_TIME: Arm one timer per task for the next fire time of its trigger, and re-arm after each run</li>
+     * </ul>
+     * A task may override the scheduling mode of its task group
+     */
+    public enum ScheduleMode {
+        FIXED_DELAY, FIXED_RATE, NEXT_FIRE_TIME
+    }
+
+    /**
+     * Job execution mode of the workers owned by the task group:
+     * <ul>
+     * <li>PLATFORM: A pool of up to maxConcurrent platform threads</li>
+     * <li>VIRTUAL: A new virtual thread for each run, for blocking jobs (Java 21+, falls back to PLATFORM on older runtimes)</li>
+     * </ul>
+     */
+    public enum ExecutionMode {
+        PLATFORM, VIRTUAL
+    }
+
+    /**
+     * Behavior when a task is due while maxConcurrent jobs of the task group are executing:
+     * <ul>
+     * <li>QUEUE: Wait in the task group until a job completes, up to maxQueued waiting tasks, further firings are discarded</li>
+     * <li>DISCARD: Discard the firing, the task is armed for its next fire time</li>
+     * </ul>
+     */
+    public enum OverflowPolicy {
+        QUEUE, DISCARD
+    }
+
     /*
      * Task status
      */
@@ -50,12 +100,84 @@ public class TaskGroup {
      */
     private int maxTask;
 
+    /*
+     * Maximum number of jobs executing at the same time, default maxTask
+     */
+    private int maxConcurrent;
+
+    /*
+     * Permits of executing jobs, acquired when a due task is dispatched and released when its run completes
+     */
+    private final Permits permits;
+
+    /*
+     * Behavior when no permit is available, default QUEUE
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.QUEUE;
+
+    /*
+     * Maximum number of due tasks waiting for a permit
+     */
+    private int maxQueued = Integer.MAX_VALUE;
+
+    /*
+     * Due tasks waiting for a permit
+     */
+    private final Queue<TaskRunner> waitingQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+
+    /*
+     * Firings discarded because no permit was available
+     */
+    private final AtomicLong discardedCount = new AtomicLong();
+
+    /*
+     * Runs abandoned because their job exceeded the timeout
+     */
+    private final AtomicLong abandonedCount = new AtomicLong();
+
+    /*
+     * Rate limiters of the task group and of its task container, null for no limit
+     */
+    private volatile RateLimiter rateLimiter;
+    private volatile RateLimiter containerRateLimiter;
+
     /*
      * Task list
      */
     private final Map<String, Task> taskMap = new ConcurrentHashMap<>();
 
-    private final ScheduledThreadPoolExecutor executor;
+    /*
+     * Task scheduling mode, default FIXED_DELAY
+     */
+    private ScheduleMode scheduleMode = ScheduleMode.FIXED_DELAY;
+
+    /*
+     * Timer arming the next run of each task, it only hands due task runners to the workers.
+     * An owned timer is created when the task group starts and shut down when it stops
+     */
+    private volatile ScheduledExecutorService timer;
+
+    /*
+     * Whether the timer belongs to this task group, a shared timer is not shut down with the group
+     */
+    private final boolean ownTimer;
+
+    /*
+     * Job execution mode of the owned workers, default PLATFORM
+     */
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+
+    /*
+     * Workers executing the jobs of the task group, owned workers are created when the task group starts
+     * and shut down when it stops
+     */
+    private volatile ExecutorService workers;
+
+    /*
+     * Whether the workers belong to this task group, shared workers are not shut down with the group
+     */
+    private final boolean ownWorkers;
 
     /**
      * Constructor, default 20 tasks
@@ -67,16 +189,102 @@ public class TaskGroup {
     }
 
     /**
-     * Constructor
+     * Constructor, the task group owns its timer and workers
      *
-     * @param name Task group name
+     * @param name    Task group name
      * @param maxTask Maximum number of tasks in the task group
      */
     public TaskGroup(String name, int maxTask) {
+        this(name, maxTask, null, true, null, true);
+    }
+
+    /**
+     * Constructor, the task group owns its workers
+     *
+     * @param name    Task group name
+     * @param maxTask Maximum number of tasks in the task group
+     * @param timer   Shared timer, not shut down when the task group stops
+     */
+    public TaskGroup(String name, int maxTask, ScheduledExecutorService timer) {
+        this(name, maxTask, timer, false, null, true);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param name    Task group name
+     * @param maxTask Maximum number of tasks in the task group
+     * @param timer   Shared timer, not shut down when the task group stops
+     * @param workers Shared workers executing the jobs, not shut down when the task group stops
+     */
+    public TaskGroup(String name, int maxTask, ScheduledExecutorService timer, ExecutorService workers) {
+        this(name, maxTask, timer, false, workers, false);
+    }
+
+    private TaskGroup(String name, int maxTask, ScheduledExecutorService timer, boolean ownTimer, ExecutorService workers,
+                      boolean ownWorkers) {
         this.name = name;
         this.maxTask = maxTask;
+        this.maxConcurrent = maxTask;
+        this.permits = new Permits(maxTask);
+
+        this.timer = timer;
+        this.ownTimer = ownTimer;
+        this.workers = workers;
+        this.ownWorkers = ownWorkers;
+    }
+
+    /*
+     * Create the owned timer and workers if the task group has none, a stopped task group gets new ones.
+     * Idle platform worker threads exit after one minute, so the pool only grows to maxConcurrent threads under load
+     */
+    private synchronized void open() {
+        if (this.ownTimer && this.timer == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory(name + "-timer"));
+            executor.setRemoveOnCancelPolicy(true);
+            this.timer = executor;
+        }
+        if (this.ownWorkers && this.workers == null) {
+            if (this.executionMode == ExecutionMode.VIRTUAL && VirtualThreads.isSupported()) {
+                this.workers = VirtualThreads.newThreadPerTaskExecutor(name + "-worker");
+            } else {
+                if (this.executionMode == ExecutionMode.VIRTUAL) {
+                    logger.warn(String.format("group=%s; exception=virtual threads are not supported, use platform threads", name));
+                }
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory(name + "-worker"));
+                pool.allowCoreThreadTimeOut(true);
+                this.workers = pool;
+            }
+        }
+    }
+
+    /*
+     * Shut down the owned timer and workers, shared ones are left to their owner
+     */
+    private synchronized void close() {
+        if (this.ownTimer && this.timer != null) {
+            this.timer.shutdown();
+            this.timer = null;
+        }
+        if (this.ownWorkers && this.workers != null) {
+            this.workers.shutdown();
+            this.workers = null;
+        }
+        while (this.waitingQueue.poll() != null) {
+            this.waitingCount.decrementAndGet();
+        }
+    }
 
-        this.executor = new ScheduledThreadPoolExecutor(maxTask);
+    /**
+     * Replace the shared timer, used by the task container when it recreates its dispatcher
+     *
+     * @param timer Shared timer
+     */
+    void setTimer(ScheduledExecutorService timer) {
+        if (!this.ownTimer) {
+            this.timer = timer;
+        }
     }
 
     /**
@@ -109,6 +317,9 @@ public class TaskGroup {
         if (this.taskMap.containsKey(taskName)) {
             throw new TaskException("Already has same task name : " + taskName);
         }
+        if (this.taskMap.size() >= this.maxTask) {
+            throw new TaskException("Max task count is " + this.maxTask + " : " + name);
+        }
 
         task.setGroup(this);
         this.taskMap.put(taskName, task);
@@ -134,7 +345,7 @@ public class TaskGroup {
             if (this.taskMap.containsKey(taskName)) {
                 task = this.taskMap.remove(taskName);
                 if (task != null) {
-                    task.setStatus(Task.Status.STOP);
+                    cancel(task);
                     if (this.taskMap.size() == 0) {
                         this.status = Status.NOT_ANY_TASK;
                     }
@@ -197,19 +408,29 @@ public class TaskGroup {
 
                 Trigger trigger = task.getTrigger();
                 long now = System.currentTimeMillis();
-                long startTime = trigger.getStartTime().getTime() - now;
 
-                TaskRunner taskRunner = new TaskRunner(task);
+                task.setGroup(this);
+                open();
 
-                if (task.getTrigger().isRepeat()) {
-                    this.executor.scheduleWithFixedDelay(taskRunner, startTime, trigger.getRepeatInterval(), TimeUnit.MILLISECONDS);
-                } else {
-                    this.executor.schedule(taskRunner, startTime, TimeUnit.MILLISECONDS);
+                ScheduleMode mode = task.getScheduleMode() != null ? task.getScheduleMode() : this.scheduleMode;
+                TaskRunner taskRunner = task.getRunner();
+                if (taskRunner == null || taskRunner.getTask() != task) {
+                    taskRunner = new TaskRunner(task);
+                    task.setRunner(taskRunner);
                 }
+                taskRunner.setScheduleMode(mode);
+                taskRunner.start();
 
-                task.setRunner(taskRunner);
                 task.setStatus(Task.Status.RUNNING);
 
+                if (mode == ScheduleMode.NEXT_FIRE_TIME) {
+                    schedule(taskRunner, now - 1);
+                } else if (mode == ScheduleMode.FIXED_RATE) {
+                    plan(taskRunner, Math.max(trigger.getStartTime().getTime(), now));
+                } else {
+                    arm(taskRunner, trigger.getStartTime().getTime() - now);
+                }
+
                 this.taskMap.put(task.getName(), task);
             } else {
                 task.setStatus(Task.Status.RUNNING);
@@ -220,6 +441,316 @@ public class TaskGroup {
         }
     }
 
+    /**
+     * Arm the next run of a repeating task after a run
+     * <p>
+     * FIXED_DELAY arms one repeat interval after the run completes. FIXED_RATE and NEXT_FIRE_TIME arm one repeat interval
+     * after the fire time of the run, which may already have passed when the run took long, and apply the misfire policy
+     * of the task if the run was a misfire
+     *
+     * @param taskRunner Task runner which has just run
+     * @param misfire    Whether the run started later than the misfire threshold
+     */
+    void reschedule(TaskRunner taskRunner, boolean misfire) {
+        Task task = taskRunner.getTask();
+        long interval = Math.max(task.getTrigger().getRepeatInterval(), 1);
+        long fireTime = taskRunner.getFireTime();
+        long now = System.currentTimeMillis();
+
+        Task.MisfirePolicy policy = misfire ? task.getMisfirePolicy() : null;
+
+        if (taskRunner.getScheduleMode() == ScheduleMode.FIXED_RATE) {
+            long next = fireTime + interval;
+            if ((policy == Task.MisfirePolicy.SKIP || policy == Task.MisfirePolicy.FIRE_ONCE_NOW) && next <= now) {
+                // First fire time of the original schedule after now
+                next += ((now - next) / interval + 1) * interval;
+            } else if (policy == Task.MisfirePolicy.RESCHEDULE_NEXT) {
+                next = now + interval;
+            }
+            plan(taskRunner, next);
+        } else if (taskRunner.getScheduleMode() == ScheduleMode.NEXT_FIRE_TIME) {
+            long after = fireTime + interval - 1;
+            if (policy == Task.MisfirePolicy.SKIP || policy == Task.MisfirePolicy.FIRE_ONCE_NOW) {
+                after = Math.max(after, now);
+            } else if (policy == Task.MisfirePolicy.RESCHEDULE_NEXT) {
+                after = Math.max(after, now + interval - 1);
+            }
+            schedule(taskRunner, after);
+        } else {
+            arm(taskRunner, interval);
+        }
+    }
+
+    /**
+     * Arm the retry of a failed execution
+     * <p>
+     * The retry is dispatched like a regular firing, through the rate limiters and permits of the task group
+     *
+     * @param taskRunner Task runner whose execution failed
+     * @param delay      Backoff delay (ms)
+     */
+    void retry(TaskRunner taskRunner, long delay) {
+        arm(taskRunner, delay);
+    }
+
+    /*
+     * Arm a one-shot timer for a planned fire time, unless the trigger never fires at or after it
+     */
+    private void plan(TaskRunner taskRunner, long fireTime) {
+        if (taskRunner.nextFireTime(fireTime - 1) < 0) {
+            taskRunner.finish();
+            return;
+        }
+
+        taskRunner.setFireTime(fireTime);
+        arm(taskRunner, fireTime - System.currentTimeMillis());
+    }
+
+    /**
+     * Arm a one-shot timer for the next fire time of the task trigger
+     *
+     * @param taskRunner Task runner to be armed
+     * @param after      Time after which the next fire time is searched (ms)
+     */
+    void schedule(TaskRunner taskRunner, long after) {
+        long fireTime = taskRunner.nextFireTime(after);
+        if (fireTime < 0) {
+            taskRunner.finish();
+            return;
+        }
+
+        taskRunner.setFireTime(fireTime);
+        arm(taskRunner, fireTime - System.currentTimeMillis());
+    }
+
+    private void arm(TaskRunner taskRunner, long delay) {
+        arm(taskRunner, taskRunner.getDispatcher(), delay);
+    }
+
+    private void arm(TaskRunner taskRunner, Runnable command, long delay) {
+        if (taskRunner.getTask().getStatus() == Task.Status.STOP) {
+            // The task stopped while it was running
+            taskRunner.finish();
+            return;
+        }
+
+        ScheduledExecutorService timer = this.timer;
+        if (timer == null) {
+            return;
+        }
+
+        // A run which started before a restart may arm the task after the restart has armed it already
+        boolean dispatcher = command == taskRunner.getDispatcher();
+        if (dispatcher && !taskRunner.arm()) {
+            return;
+        }
+
+        try {
+            ScheduledFuture<?> future = timer.schedule(command, delay, TimeUnit.MILLISECONDS);
+            taskRunner.setFuture(future);
+
+            // The task may have stopped before the handle was visible to stop()
+            if (taskRunner.getTask().getStatus() == Task.Status.STOP && taskRunner.cancel()) {
+                taskRunner.finish();
+            }
+        } catch (RejectedExecutionException e) {
+            if (dispatcher) {
+                taskRunner.disarm();
+            }
+            logger.debug(String.format("task=%s; group=%s; action=reject", taskRunner.getTask(), name));
+        }
+    }
+
+    /**
+     * Hand a due task runner from the timer to the workers
+     * <p>
+     * The run first reserves a permit of the rate limiters of the task group and the task container.
+     * If a rate limit is exceeded the run is deferred on the timer, never dropped
+     *
+     * @param taskRunner Task runner which is due
+     */
+    void dispatch(TaskRunner taskRunner) {
+        RateLimiter rateLimiter = this.rateLimiter;
+        RateLimiter containerRateLimiter = this.containerRateLimiter;
+
+        long delay = 0;
+        if (rateLimiter != null) {
+            delay = rateLimiter.reserve();
+        }
+        if (containerRateLimiter != null) {
+            delay = Math.max(delay, containerRateLimiter.reserve());
+        }
+
+        if (delay > 0) {
+            long delayMillis = TimeUnit.NANOSECONDS.toMillis(delay + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+            taskRunner.setThrottleDelay(delayMillis);
+
+            logger.debug(String.format("task=%s; group=%s; action=defer; delay=%d ms", taskRunner.getTask(), name, delayMillis));
+            arm(taskRunner, taskRunner.getAdmission(), delayMillis);
+        } else {
+            taskRunner.setThrottleDelay(0);
+            admit(taskRunner);
+        }
+    }
+
+    /**
+     * Admit a due task runner to the workers
+     * <p>
+     * The run needs one of maxConcurrent permits. Without a free permit the task waits in the task group
+     * or the firing is discarded, according to the overflow policy
+     *
+     * @param taskRunner Task runner which is due
+     */
+    void admit(TaskRunner taskRunner) {
+        if (this.permits.tryAcquire()) {
+            submit(taskRunner);
+        } else if (this.overflowPolicy == OverflowPolicy.QUEUE && this.waitingCount.incrementAndGet() <= this.maxQueued) {
+            this.waitingQueue.offer(taskRunner);
+            // A permit may have been released before the task was queued
+            drain();
+        } else {
+            if (this.overflowPolicy == OverflowPolicy.QUEUE) {
+                this.waitingCount.decrementAndGet();
+            }
+            this.discardedCount.incrementAndGet();
+            logger.debug(String.format("task=%s; group=%s; action=discard", taskRunner.getTask(), name));
+
+            if (taskRunner.getTask().getTrigger().isRepeat()) {
+                reschedule(taskRunner, false);
+            }
+        }
+    }
+
+    /**
+     * Run a dispatched task runner on a worker and release its permit afterwards
+     *
+     * @param taskRunner Task runner holding a permit
+     */
+    void execute(TaskRunner taskRunner) {
+        Lease lease = new Lease();
+        try {
+            taskRunner.run(lease);
+        } finally {
+            if (lease.release()) {
+                release();
+            } else {
+                // The run was abandoned, its permit is released already and its replacement worker is no longer needed
+                synchronized (lease) {
+                    resize(lease.workers, -1);
+                }
+            }
+        }
+    }
+
+    /*
+     * Release a permit, handing it over to the longest waiting task if there is one. After the limit was lowered
+     * below the permits in use, the permit is returned to the reduced semaphore instead
+     */
+    private void release() {
+        TaskRunner next = this.permits.availablePermits() >= 0 ? this.waitingQueue.poll() : null;
+        if (next != null) {
+            this.waitingCount.decrementAndGet();
+            submit(next);
+        } else {
+            this.permits.release();
+            drain();
+        }
+    }
+
+    /**
+     * Abandon a run whose job exceeded its timeout and did not return
+     * <p>
+     * The permit of the run is released to other tasks and an owned platform worker pool grows by one thread while
+     * the abandoned thread is blocked, so a stuck job cannot starve the task group. A repeating task is armed for its
+     * next fire time, and the abandoned execution no longer counts as running for its concurrency policy
+     *
+     * @param taskRunner Task runner of the abandoned run
+     * @param lease      Permit of the abandoned run
+     */
+    void abandon(TaskRunner taskRunner, Lease lease) {
+        if (lease == null) {
+            return;
+        }
+        synchronized (lease) {
+            // The pool is grown before the run can see its lease released, so it always shrinks it back
+            if (!lease.release()) {
+                return;
+            }
+            lease.workers = resize(this.workers, 1);
+        }
+        this.abandonedCount.incrementAndGet();
+        logger.warn(String.format("task=%s; group=%s; action=abandon", taskRunner.getTask(), name));
+
+        release();
+
+        if (taskRunner.getTask().getTrigger().isRepeat()) {
+            reschedule(taskRunner, false);
+        }
+    }
+
+    /*
+     * Grow or shrink an owned platform worker pool, returns the resized pool or null if the workers cannot be resized
+     */
+    private synchronized ThreadPoolExecutor resize(ExecutorService workers, int delta) {
+        if (!this.ownWorkers || !(workers instanceof ThreadPoolExecutor) || workers.isShutdown()) {
+            return null;
+        }
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) workers;
+        if (delta > 0) {
+            pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+            pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+        } else {
+            pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+            pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+        }
+        return pool;
+    }
+
+    /**
+     * Run a command once on the timer of the task group
+     *
+     * @param command Command
+     * @param delay   Delay (ms)
+     * @return Handle of the command, null if the task group has stopped
+     */
+    ScheduledFuture<?> delay(Runnable command, long delay) {
+        ScheduledExecutorService timer = this.timer;
+        if (timer == null) {
+            return null;
+        }
+        try {
+            return timer.schedule(command, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    private void submit(TaskRunner taskRunner) {
+        ExecutorService workers = this.workers;
+        try {
+            if (workers == null) {
+                // Task group has stopped
+                throw new RejectedExecutionException();
+            }
+            workers.execute(taskRunner.getExecution());
+        } catch (RejectedExecutionException e) {
+            this.permits.release();
+            logger.debug(String.format("task=%s; group=%s; action=reject", taskRunner.getTask(), name));
+        }
+    }
+
+    private void drain() {
+        while (!this.waitingQueue.isEmpty() && this.permits.tryAcquire()) {
+            TaskRunner next = this.waitingQueue.poll();
+            if (next != null) {
+                this.waitingCount.decrementAndGet();
+                submit(next);
+            } else {
+                this.permits.release();
+            }
+        }
+    }
+
     /**
      * Pause all tasks in the task group
      *
@@ -259,12 +790,22 @@ public class TaskGroup {
         for (String taskName : taskNameSet) {
             stop(taskName);
         }
-        if (executor != null) {
-            executor.shutdown();
-        }
+        close();
         status = Status.READY_TO_RUN;
     }
 
+    /**
+     * Restart all tasks in the task group
+     * <p>
+     * Tasks keep their runners and the owned timer and workers are recreated, so a restart costs no reload of the tasks
+     *
+     * @throws TaskException Task restart exception
+     */
+    public void restart() throws TaskException {
+        stop();
+        start();
+    }
+
     /**
      * Stop the specified task according to the task name
      *
@@ -275,12 +816,40 @@ public class TaskGroup {
 
         Task task = this.taskMap.get(taskName);
         if (task != null) {
-            task.setStatus(Task.Status.STOP);
+            cancel(task);
         } else {
             throw new TaskException("No such Task : " + taskName);
         }
     }
 
+    /*
+     * Stop the task and cancel its armed run, so a stopped task no longer wakes up on the timer
+     */
+    private void cancel(Task task) {
+        task.setStatus(Task.Status.STOP);
+
+        TaskRunner taskRunner = task.getRunner();
+        if (taskRunner != null && taskRunner.cancel()) {
+            taskRunner.finish();
+        }
+    }
+
+    /**
+     * Get the number of tasks in the task group with a run armed on the timer
+     *
+     * @return Number of armed tasks
+     */
+    public int getQueueSize() {
+        int queueSize = 0;
+        for (Task task : this.taskMap.values()) {
+            TaskRunner taskRunner = task.getRunner();
+            if (taskRunner != null && taskRunner.isArmed()) {
+                queueSize++;
+            }
+        }
+        return queueSize;
+    }
+
     /**
      * Get the task group name
      *
@@ -312,6 +881,186 @@ public class TaskGroup {
         return status;
     }
 
+    /**
+     * Get the task scheduling mode
+     *
+     * @return Task scheduling mode
+     */
+    public ScheduleMode getScheduleMode() {
+        return scheduleMode;
+    }
+
+    /**
+     * Set the task scheduling mode, applies to tasks started afterwards
+     *
+     * @param scheduleMode Task scheduling mode
+     */
+    public void setScheduleMode(ScheduleMode scheduleMode) {
+        this.scheduleMode = scheduleMode;
+    }
+
+    /**
+     * Get the job execution mode of the owned workers
+     *
+     * @return Job execution mode
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Set the job execution mode of the owned workers, applies when the task group starts and has no effect on
+     * shared workers
+     *
+     * @param executionMode Job execution mode
+     */
+    public synchronized void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    /**
+     * Get the maximum number of jobs executing at the same time
+     *
+     * @return Maximum number of executing jobs
+     */
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Set the maximum number of jobs executing at the same time, independent of the maximum number of tasks
+     * <p>
+     * Lowering the limit takes effect as running jobs complete
+     *
+     * @param maxConcurrent Maximum number of executing jobs
+     */
+    public synchronized void setMaxConcurrent(int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent must be greater than 0: " + maxConcurrent);
+        }
+
+        int delta = maxConcurrent - this.maxConcurrent;
+        this.maxConcurrent = maxConcurrent;
+        if (delta > 0) {
+            this.permits.release(delta);
+            drain();
+        } else if (delta < 0) {
+            this.permits.reduce(-delta);
+        }
+
+        if (this.ownWorkers && this.workers instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) this.workers;
+            if (delta > 0) {
+                pool.setMaximumPoolSize(maxConcurrent);
+                pool.setCorePoolSize(maxConcurrent);
+            } else {
+                pool.setCorePoolSize(maxConcurrent);
+                pool.setMaximumPoolSize(maxConcurrent);
+            }
+        }
+    }
+
+    /**
+     * Get the behavior when a task is due while maxConcurrent jobs are executing
+     *
+     * @return Overflow policy
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Set the behavior when a task is due while maxConcurrent jobs are executing
+     *
+     * @param overflowPolicy Overflow policy
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Get the maximum number of due tasks waiting for a running job to complete
+     *
+     * @return Maximum number of waiting tasks
+     */
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    /**
+     * Set the maximum number of due tasks waiting for a running job to complete, applies to the QUEUE overflow policy
+     *
+     * @param maxQueued Maximum number of waiting tasks
+     */
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Get the rate limiter of the task group
+     *
+     * @return Rate limiter, null if the task group has no rate limit
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Set the rate limiter of the task group, firings above the rate are deferred
+     * <p>
+     * A rate limiter may be shared by several task groups
+     *
+     * @param rateLimiter Rate limiter, null for no rate limit
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Set the rate limiter of the task container, applies in addition to the rate limiter of the task group
+     *
+     * @param containerRateLimiter Rate limiter of the task container, null for no rate limit
+     */
+    void setContainerRateLimiter(RateLimiter containerRateLimiter) {
+        this.containerRateLimiter = containerRateLimiter;
+    }
+
+    /**
+     * Get the number of jobs executing in the task group
+     *
+     * @return Number of executing jobs
+     */
+    public int getActiveCount() {
+        return Math.max(this.maxConcurrent - this.permits.availablePermits(), 0);
+    }
+
+    /**
+     * Get the number of due tasks waiting for a running job to complete
+     *
+     * @return Number of waiting tasks
+     */
+    public int getWaitingCount() {
+        return this.waitingCount.get();
+    }
+
+    /**
+     * Get the number of firings discarded because maxConcurrent jobs were executing
+     *
+     * @return Number of discarded firings
+     */
+    public long getDiscardedCount() {
+        return this.discardedCount.get();
+    }
+
+    /**
+     * Get the number of runs abandoned because their job exceeded the timeout and did not return
+     *
+     * @return Number of abandoned runs
+     */
+    public long getAbandonedCount() {
+        return this.abandonedCount.get();
+    }
+
     /**
      * Return the maximum number of tasks
      *
@@ -324,4 +1073,44 @@ public class TaskGroup {
     public String toString() {
         return name;
     }
+
+    /**
+     * Permit held by one run, released exactly once: when the run completes or when it is abandoned
+     */
+    static final class Lease {
+        private final AtomicBoolean held = new AtomicBoolean(true);
+
+        /*
+         * Worker pool grown to replace the thread of the abandoned run
+         */
+        private volatile ThreadPoolExecutor workers;
+
+        private boolean release() {
+            return this.held.compareAndSet(true, false);
+        }
+
+        /**
+         * Whether the run was abandoned, or has completed
+         *
+         * @return true if the permit was released
+         */
+        boolean isReleased() {
+            return !this.held.get();
+        }
+    }
+
+    /*
+     * Semaphore whose permits can be reduced when the concurrency limit is lowered
+     */
+    private static class Permits extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        Permits(int permits) {
+            super(permits);
+        }
+
+        void reduce(int reduction) {
+            reducePermits(reduction);
+        }
+    }
 }
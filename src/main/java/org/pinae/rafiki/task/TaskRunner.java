@@ -1,14 +1,32 @@
 package org.pinae.rafiki.task;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
+import org.pinae.rafiki.job.CancellationToken;
+import org.pinae.rafiki.job.ContextJob;
 import org.pinae.rafiki.job.Job;
+import org.pinae.rafiki.job.JobContext;
 import org.pinae.rafiki.listener.JobListener;
 import org.pinae.rafiki.listener.TaskListener;
+import org.pinae.rafiki.task.scheduler.NamedThreadFactory;
 import org.pinae.rafiki.trigger.AbstractTrigger;
+import org.pinae.rafiki.trigger.Trigger;
+import org.pinae.rafiki.trigger.TriggerState;
 
 /**
  * Task Executor
@@ -18,7 +36,18 @@ import org.pinae.rafiki.trigger.AbstractTrigger;
 public final class TaskRunner implements Runnable {
     private static final Logger logger = LogManager.getLogger(TaskRunner.class);
 
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    /*
+     * Job execution on the current thread, see current()
+     */
+    private static final ThreadLocal<Execution> CURRENT = new ThreadLocal<Execution>();
+
+    /*
+     * Threads applying the timeout policy, shared by all tasks so the timers only flag timeouts. Idle threads end after
+     * one minute. Not the workers of the task group, whose last thread may be held by the job which timed out
+     */
+    private static final ExecutorService TIMEOUTS = Executors.newCachedThreadPool(new NamedThreadFactory("rafiki-timeout", true));
 
     /*
      * Tasks to be executed
@@ -32,26 +61,141 @@ public final class TaskRunner implements Runnable {
     /*
      * Jobs to be executed
      */
-    private final Job job;
+    private Job job;
     /*
      * Job listener
      */
     private JobListener jobListener;
 
+    /*
+     * Job receiving the context of its executions, null if the job is not a ContextJob
+     */
+    private ContextJob contextJob;
+
     /*
      * Task trigger
      */
     private AbstractTrigger trigger;
 
+    /*
+     * Firing state of the task, so the trigger may be shared with other tasks. Kept when the task restarts
+     */
+    private final TriggerState triggerState = new TriggerState();
+
     /*
      * Task start time: When the trigger meets the conditions, set the start time of the task execution, and set it to -1 when the task ends
      */
-    private long startTime;
+    private volatile long startTime;
 
     /*
      * Whether this execution has timed out: true This execution has timed out; false This execution has not timed out
      */
-    private boolean timeoutFlag = false;
+    private volatile boolean timeoutFlag = false;
+
+    /*
+     * Latest job execution
+     */
+    private volatile Execution lastExecution;
+
+    /*
+     * Job executions which exceeded the timeout
+     */
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    /*
+     * Retries of failed executions waiting for their backoff delay, one per failed execution so overlapping
+     * executions do not overwrite each other's retry
+     */
+    private final Queue<Retry> retries = new ConcurrentLinkedQueue<Retry>();
+
+    /*
+     * Scheduled fire time of the firing queued while the previous run was executing (ms)
+     */
+    private volatile long queuedFireTime;
+
+    /*
+     * Execution which has completed and can be reused, so executions which do not overlap allocate no context
+     */
+    private final AtomicReference<Execution> idleExecution = new AtomicReference<Execution>();
+
+    /*
+     * Data map of the job context, kept when the task restarts
+     */
+    private final Map<String, Object> data = new ConcurrentHashMap<String, Object>();
+
+    /*
+     * Failed executions which were retried
+     */
+    private final AtomicLong retryCount = new AtomicLong();
+
+    /*
+     * Scheduling mode the task was started with
+     */
+    private TaskGroup.ScheduleMode scheduleMode = TaskGroup.ScheduleMode.FIXED_DELAY;
+
+    /*
+     * Fire time this run was armed for in the FIXED_RATE and NEXT_FIRE_TIME scheduling modes, -1 in FIXED_DELAY
+     */
+    private volatile long fireTime = -1;
+
+    /*
+     * Armed on the timer, hands this runner to the workers of the task group when due
+     */
+    private final Runnable dispatcher;
+
+    /*
+     * Armed on the timer when a rate limit deferred the run, admits this runner to the workers when due
+     */
+    private final Runnable admission;
+
+    /*
+     * Submitted to the workers, runs this runner holding a permit of the task group
+     */
+    private final Runnable execution;
+
+    /*
+     * Delay of the current run induced by rate limits (ms), not counted as misfire
+     */
+    private volatile long throttleDelay;
+
+    /*
+     * Incremented on each start, so a run still executing from before a restart does not re-arm the old schedule
+     */
+    private volatile int epoch;
+
+    /*
+     * Handle of the dispatcher armed on the timer, cancelled when the task stops
+     */
+    private volatile ScheduledFuture<?> future;
+
+    /*
+     * Whether the dispatcher is armed and has not fired yet, so a run from before a restart does not arm it twice
+     */
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    /*
+     * Execution state guarding against overlapping runs in the low bits: IDLE, RUNNING, or RUNNING with a QUEUED firing.
+     * The high bits count the runs which took the RUNNING state, so a run whose state was taken over leaves it alone
+     */
+    private static final int IDLE = 0;
+    private static final int RUNNING = 1;
+    private static final int QUEUED = 2;
+    private static final int STATUS = 3;
+    private static final int HOLDER = 4;
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+
+    /*
+     * Permit and epoch of the run holding the RUNNING state, valid for the holder recorded in runningState
+     */
+    private volatile TaskGroup.Lease runningLease;
+    private volatile int runningEpoch;
+    private volatile int runningState;
+
+    /*
+     * Firings dropped, or merged into a queued firing, because the previous run was still executing
+     */
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
 
     /**
      * Constructor
@@ -60,81 +204,651 @@ public final class TaskRunner implements Runnable {
      */
     protected TaskRunner(Task task) {
         this.task = task;
+        this.dispatcher = () -> {
+            this.pending.set(false);
+            this.task.getGroup().dispatch(this);
+        };
+        this.admission = () -> this.task.getGroup().admit(this);
+        this.execution = () -> this.task.getGroup().execute(this);
+    }
 
-        if (task instanceof TaskListener) {
-            this.taskListener = (TaskListener) task;
-        }
+    /**
+     * Prepare the runner for a start of the task, a restarted task keeps its runner
+     */
+    void start() {
+        this.taskListener = task instanceof TaskListener ? (TaskListener) task : null;
 
         if (this.taskListener != null) {
             this.taskListener.start();
         }
 
         this.job = task.getJob();
-        if (task.getTrigger() instanceof AbstractTrigger) {
-            this.trigger = (AbstractTrigger) task.getTrigger();
+        this.trigger = task.getTrigger() instanceof AbstractTrigger ? (AbstractTrigger) task.getTrigger() : null;
+        this.jobListener = this.job instanceof JobListener ? (JobListener) this.job : null;
+        this.contextJob = this.job instanceof ContextJob ? (ContextJob) this.job : null;
+        this.fireTime = -1;
+        this.retries.clear();
+        this.epoch++;
+    }
+
+    public void run() {
+        run(null);
+    }
+
+    /**
+     * Run the task holding a permit of its task group
+     *
+     * @param lease Permit of the run, null if the run holds none
+     */
+    void run(TaskGroup.Lease lease) {
+
+        if (this.trigger == null) {
+            return;
         }
 
-        if (this.job instanceof JobListener) {
-            this.jobListener = (JobListener) job;
+        Retry waitingRetry = this.retries.peek();
+        if (waitingRetry != null) {
+            long wait = waitingRetry.dueTime - System.currentTimeMillis();
+            if (wait > 0) {
+                // Due before the backoff delay has passed, the firing waits behind the retry
+                this.task.getGroup().retry(this, wait);
+                return;
+            }
+
+            // Retry of a failed execution, the trigger has fired for it already
+            int epoch = this.epoch;
+            if (this.retries.remove(waitingRetry) && this.task.getStatus() == Task.Status.RUNNING) {
+                retry(lease, epoch, waitingRetry.attempt, waitingRetry.fireTime);
+            }
+            next(lease, epoch, false);
+            return;
         }
 
-    }
+        if (!this.trigger.isFinish(this.triggerState) && this.task.getStatus() != Task.Status.STOP) {
 
-    public void run() {
+            int epoch = this.epoch;
+            long fireTime = this.fireTime;
+            boolean misfire = fireTime > 0 && System.currentTimeMillis() - fireTime - this.throttleDelay > this.task.getMisfireThreshold();
+            boolean execute = true;
+            if (misfire) {
+                Task.MisfirePolicy policy = this.task.getMisfirePolicy();
+                execute = policy == Task.MisfirePolicy.FIRE_ONCE_NOW || policy == Task.MisfirePolicy.FIRE_ALL_MISSED;
 
-        if (this.trigger == null) {
+                logger.debug(String.format("task=%s; group=%s; date=%s; action=misfire; policy=%s", task, task.getGroup(),
+                        dateFormat.format(Instant.ofEpochMilli(fireTime)), policy));
+            }
+
+            if (execute && this.task.getStatus() == Task.Status.RUNNING) {
+                long now = fireTime > 0 ? fireTime : System.currentTimeMillis();
+                if (!fire(now, lease, epoch)) {
+                    // Overlapping firing was skipped or queued, the running execution keeps the schedule
+                    return;
+                }
+            }
+
+            next(lease, epoch, misfire);
+        } else {
+            finish();
+        }
+
+    }
+
+    /*
+     * Arm the retry of a failed execution, or the next firing of a repeating task
+     */
+    private void next(TaskGroup.Lease lease, int epoch, boolean misfire) {
+        if (lease != null && lease.isReleased()) {
+            // The run was abandoned after a timeout, and the task was armed again at that time
+            return;
+        }
+        if (epoch != this.epoch) {
             return;
         }
 
-        if (!this.trigger.isFinish() && this.task.getStatus() != Task.Status.STOP) {
+        Retry waitingRetry = this.retries.peek();
+        if (waitingRetry != null) {
+            this.task.getGroup().retry(this, Math.max(waitingRetry.dueTime - System.currentTimeMillis(), 0));
+        } else if (this.task.getTrigger().isRepeat()) {
+            this.task.getGroup().reschedule(this, misfire);
+        }
+    }
 
-            Date now = new Date();
-            if (this.trigger.match(now) && this.task.getStatus() == Task.Status.RUNNING && this.task.getStatus() != Task.Status.PAUSE) {
+    /*
+     * Execute the job again after a failed execution, unless an overlapping execution is still running
+     */
+    private void retry(TaskGroup.Lease lease, int epoch, int attempt, long scheduledFireTime) {
+        if (this.task.getConcurrencyPolicy() == Task.ConcurrencyPolicy.ALLOW) {
+            execute(lease, attempt, scheduledFireTime);
+            return;
+        }
 
-                this.startTime = System.currentTimeMillis();
+        int current = this.state.get();
+        int held = (current & STATUS) == IDLE ? acquire(current, lease, epoch) : 0;
+        if (held == 0) {
+            skip();
+            return;
+        }
+        try {
+            execute(lease, attempt, scheduledFireTime);
+        } finally {
+            while (release(held, lease)) {
+                execute(lease, 1, this.queuedFireTime);
+            }
+        }
+    }
 
-                logger.debug(String.format("task=%s; group=%s; date=%s; action=start", task, task.getGroup(), dateFormat.format(new Date())));
+    /*
+     * Execute the job if the trigger matches, applying the concurrency policy of the task when the previous run is still
+     * executing. Returns false if this firing was skipped or queued for the running execution
+     */
+    private boolean fire(long now, TaskGroup.Lease lease, int epoch) {
+        Task.ConcurrencyPolicy policy = this.task.getConcurrencyPolicy();
 
-                try {
+        if (policy == Task.ConcurrencyPolicy.ALLOW) {
+            if (this.trigger.match(now, this.triggerState)) {
+                execute(lease, 1, now);
+            }
+            return true;
+        }
 
-                    if (this.jobListener != null) {
-                        this.jobListener.beforeJobExecute();
+        boolean matched = false;
+        int held = 0;
+        while (held == 0) {
+            int current = this.state.get();
+            int status = current & STATUS;
+            if (status == IDLE) {
+                held = acquire(current, lease, epoch);
+            } else if (isAbandoned(current)) {
+                // An abandoned run no longer counts as running, and holds no permit to run its queued firing
+                held = acquire(current, lease, epoch);
+                if (held != 0 && status == QUEUED) {
+                    skip();
+                }
+            } else if (isOrphaned(current)) {
+                // The running execution will not arm the next firing, so this firing keeps the schedule
+                skip();
+                return true;
+            } else if (policy == Task.ConcurrencyPolicy.SKIP_IF_RUNNING) {
+                skip();
+                return false;
+            } else {
+                if (!matched) {
+                    if (!this.trigger.match(now, this.triggerState)) {
+                        return false;
                     }
-
-                    if (!this.job.execute()) {
-                        if (this.jobListener != null) {
-                            this.jobListener.executeFail();
-                        }
+                    matched = true;
+                }
+                if (status == RUNNING) {
+                    this.queuedFireTime = now;
+                }
+                if (status == RUNNING && this.state.compareAndSet(current, (current & ~STATUS) | QUEUED)) {
+                    if (policy == Task.ConcurrencyPolicy.COALESCE) {
+                        this.coalescedCount.incrementAndGet();
                     }
-
-                    if (this.jobListener != null) {
-                        this.jobListener.afterJobExecute();
+                    return false;
+                } else if (status == QUEUED) {
+                    if (policy == Task.ConcurrencyPolicy.COALESCE) {
+                        this.coalescedCount.incrementAndGet();
+                    } else {
+                        skip();
                     }
+                    return false;
+                }
+            }
+        }
+
+        try {
+            if (matched || this.trigger.match(now, this.triggerState)) {
+                execute(lease, 1, now);
+            }
+        } finally {
+            // Run the firing queued during the execution, it has matched the trigger already
+            while (release(held, lease)) {
+                execute(lease, 1, this.queuedFireTime);
+            }
+        }
+        return true;
+    }
 
-                } catch (Exception e) {
-                    logger.debug(String.format("task=%s; group=%s; date=%s; exception=%s", task, task.getGroup(), dateFormat.format(new Date()),
-                            e.getMessage()));
+    /*
+     * Take the RUNNING state from the given state as a new holder, and record the permit and epoch of the run.
+     * Returns the state held, 0 if the state has changed meanwhile
+     */
+    private int acquire(int current, TaskGroup.Lease lease, int epoch) {
+        int held = ((current & ~STATUS) + HOLDER) | RUNNING;
+        if (!this.state.compareAndSet(current, held)) {
+            return 0;
+        }
+        this.runningLease = lease;
+        this.runningEpoch = epoch;
+        this.runningState = held;
+        return held;
+    }
 
-                    if (this.jobListener != null) {
-                        this.jobListener.executeException();
-                    }
+    /*
+     * Release the state held by a run, unless a later run has taken it over. Returns true if the run is to execute the
+     * firing queued meanwhile and keeps holding the state
+     */
+    private boolean release(int held, TaskGroup.Lease lease) {
+        while (true) {
+            int current = this.state.get();
+            int holder = current & ~STATUS;
+            if (holder != (held & ~STATUS)) {
+                return false;
+            }
+            if ((current & STATUS) != QUEUED) {
+                if (this.state.compareAndSet(current, holder)) {
+                    return false;
                 }
+            } else if (lease != null && lease.isReleased()) {
+                // An abandoned run holds no permit to run the queued firing
+                if (this.state.compareAndSet(current, holder)) {
+                    skip();
+                    return false;
+                }
+            } else if (this.state.compareAndSet(current, holder | RUNNING)) {
+                return true;
+            }
+        }
+    }
+
+    /*
+     * Whether the run holding the given state was abandoned after a timeout, false until the holder has recorded itself
+     */
+    private boolean isAbandoned(int current) {
+        if (((this.runningState ^ current) & ~STATUS) != 0) {
+            return false;
+        }
+        TaskGroup.Lease lease = this.runningLease;
+        return lease != null && lease.isReleased();
+    }
+
+    /*
+     * Whether the run holding the given state will not arm the next firing when it returns, because the task has
+     * restarted since it started. False until the holder has recorded itself
+     */
+    private boolean isOrphaned(int current) {
+        return ((this.runningState ^ current) & ~STATUS) == 0 && this.runningEpoch != this.epoch;
+    }
+
+    private void skip() {
+        this.skippedCount.incrementAndGet();
+        logger.debug(String.format("task=%s; group=%s; date=%s; action=skip", task, task.getGroup(), dateFormat.format(Instant.now())));
+    }
 
-                long endTime = System.currentTimeMillis();
-                logger.debug(String.format("task=%s; group=%s; date=%s; action=stop; used=%s ms", task, task.getGroup(),
-                        dateFormat.format(new Date()), Long.toString(endTime - startTime)));
+    private void execute(TaskGroup.Lease lease, int attempt, long scheduledFireTime) {
+        this.startTime = System.currentTimeMillis();
 
-                this.startTime = -1;
-                this.timeoutFlag = false;
+        Execution execution = this.idleExecution.getAndSet(null);
+        if (execution == null) {
+            execution = new Execution();
+        }
+        execution.begin(lease, attempt, scheduledFireTime, this.startTime);
+        Execution outer = CURRENT.get();
+        CURRENT.set(execution);
+        this.lastExecution = execution;
+
+        // Deadline of the execution on the timer, cancelled when the job returns in time
+        long timeout = this.task.getTimeout();
+        if (timeout > 0) {
+            execution.deadline = this.task.getGroup().delay(execution.deadlineCommand, timeout);
+        }
+
+        logger.debug(String.format("task=%s; group=%s; date=%s; action=start; attempt=%d", task, task.getGroup(),
+                dateFormat.format(Instant.now()), attempt));
+
+        boolean success = false;
+        Exception cause = null;
+        try {
+
+            if (this.jobListener != null) {
+                this.jobListener.beforeJobExecute();
+            }
+
+            success = this.contextJob != null ? this.contextJob.execute(execution) : this.job.execute();
+            if (!success) {
+                if (this.jobListener != null) {
+                    this.jobListener.executeFail();
+                }
             }
-        } else {
-            logger.debug(String.format("task=%s; group=%s; date=%s; action=finish", task, task.getGroup(), dateFormat.format(new Date())));
 
-            if (this.taskListener != null) {
-                this.taskListener.finish();
+            if (this.jobListener != null) {
+                this.jobListener.afterJobExecute();
             }
+
+        } catch (Exception e) {
+            success = false;
+            cause = e;
+            logger.debug(String.format("task=%s; group=%s; date=%s; exception=%s", task, task.getGroup(), dateFormat.format(Instant.now()),
+                    e.getMessage()));
+
+            if (this.jobListener != null) {
+                this.jobListener.executeException();
+            }
+        } finally {
+            // A deadline which could not be cancelled may still fire, so its execution is not reused
+            ScheduledFuture<?> deadline = execution.deadline;
+            boolean reusable = deadline == null || deadline.cancel(false);
+            reusable &= !execution.finish() && !execution.token.isCancelled();
+            CURRENT.set(outer);
+            if (reusable) {
+                this.idleExecution.set(execution);
+            }
+        }
+
+        long endTime = System.currentTimeMillis();
+        logger.debug(String.format("task=%s; group=%s; date=%s; action=stop; used=%s ms", task, task.getGroup(),
+                dateFormat.format(Instant.now()), Long.toString(endTime - startTime)));
+
+        if (!success && execution.epoch == this.epoch && (lease == null || !lease.isReleased())) {
+            failed(execution, cause);
         }
 
+        // An abandoned execution returning late leaves the state of the newer execution alone
+        if (this.lastExecution == execution) {
+            this.startTime = -1;
+            this.timeoutFlag = false;
+        }
+    }
+
+    /*
+     * Queue the retry of a failed execution according to the retry policy of the task
+     */
+    private void failed(Execution execution, Exception cause) {
+        RetryPolicy retryPolicy = this.task.getRetryPolicy();
+        int attempt = execution.attempt;
+        if (retryPolicy == null || !retryPolicy.isRetry(attempt, cause)) {
+            return;
+        }
+
+        long delay = retryPolicy.getDelay(attempt);
+        this.retries.offer(new Retry(attempt + 1, execution.scheduledFireTime, System.currentTimeMillis() + delay));
+        this.retryCount.incrementAndGet();
+        logger.debug(String.format("task=%s; group=%s; action=retry; attempt=%d; delay=%d ms", task, task.getGroup(), attempt + 1, delay));
+    }
+
+    /*
+     * Flag an execution which exceeded the timeout on the timer, and apply the timeout policy of the task off the timer
+     */
+    private void timeout(Execution execution) {
+        if (!execution.timeout()) {
+            // The job has returned in the meantime
+            return;
+        }
+
+        this.timeoutFlag = true;
+        this.timeoutCount.incrementAndGet();
+        TIMEOUTS.execute(() -> applyTimeoutPolicy(execution));
+    }
+
+    private void applyTimeoutPolicy(Execution execution) {
+        Task.TimeoutPolicy policy = this.task.getTimeoutPolicy();
+        logger.error(String.format("task=%s; group=%s; date=%s; action=timeout; policy=%s", task, task.getGroup(),
+                dateFormat.format(Instant.now()), policy));
+
+        if (this.jobListener != null) {
+            try {
+                this.jobListener.executeTimeout();
+            } catch (RuntimeException e) {
+                logger.debug(String.format("task=%s; group=%s; action=timeout; exception=%s", task, task.getGroup(), e.getMessage()));
+            }
+        }
+
+        if (policy != Task.TimeoutPolicy.NOTIFY) {
+            execution.interrupt();
+        }
+
+        if (policy == Task.TimeoutPolicy.ABANDON) {
+            this.task.getGroup().delay(() -> TIMEOUTS.execute(() -> {
+                if (execution.isTimeout()) {
+                    this.task.getGroup().abandon(this, execution.lease);
+                }
+            }), Math.max(this.task.getAbandonDelay(), 0));
+        }
+    }
+
+    /**
+     * Return the task runner whose job is executing on the current thread
+     * <p>
+     * A job finds its cancellation token with TaskRunner.current().getCancellationToken()
+     *
+     * @return Task runner, null if the current thread does not execute a job
+     */
+    public static TaskRunner current() {
+        Execution execution = CURRENT.get();
+        return execution != null ? execution.runner : null;
+    }
+
+    /**
+     * Return the cancellation token of the job execution
+     * <p>
+     * Called from the thread executing the job it returns the token of that execution, otherwise
+     * the token of the latest execution
+     *
+     * @return Cancellation token, never cancelled if the job has not executed yet
+     */
+    public CancellationToken getCancellationToken() {
+        Execution execution = currentExecution();
+        return execution != null ? execution.token : new CancellationToken();
+    }
+
+    /**
+     * Return the attempt of the job execution
+     * <p>
+     * Called from the thread executing the job it returns the attempt of that execution, otherwise
+     * the attempt of the latest execution
+     *
+     * @return Attempt, 1 for the first execution of a firing and more for its retries, 0 if the job has not executed yet
+     */
+    public int getAttempt() {
+        Execution execution = currentExecution();
+        return execution != null ? execution.attempt : 0;
+    }
+
+    /**
+     * Return the context of the job execution
+     * <p>
+     * Called from the thread executing the job it returns the context of that execution, otherwise
+     * the context of the latest execution
+     *
+     * @return Job context, null if the job has not executed yet
+     */
+    public JobContext getJobContext() {
+        return currentExecution();
+    }
+
+    /*
+     * Execution on the current thread if it belongs to this runner, otherwise the latest execution
+     */
+    private Execution currentExecution() {
+        Execution execution = CURRENT.get();
+        if (execution == null || execution.runner != this) {
+            execution = this.lastExecution;
+        }
+        return execution;
+    }
+
+    /**
+     * Return the number of failed job executions which were retried
+     *
+     * @return Retried executions
+     */
+    public long getRetryCount() {
+        return this.retryCount.get();
+    }
+
+    /**
+     * Return the number of job executions which exceeded the timeout
+     *
+     * @return Timed out executions
+     */
+    public long getTimeoutCount() {
+        return this.timeoutCount.get();
+    }
+
+    /**
+     * Notify that the task will not be executed any more
+     */
+    void finish() {
+        logger.debug(String.format("task=%s; group=%s; date=%s; action=finish", task, task.getGroup(), dateFormat.format(Instant.now())));
+
+        if (this.taskListener != null) {
+            this.taskListener.finish();
+        }
+    }
+
+    /**
+     * Set the scheduling mode the task was started with
+     *
+     * @param scheduleMode Scheduling mode
+     */
+    void setScheduleMode(TaskGroup.ScheduleMode scheduleMode) {
+        this.scheduleMode = scheduleMode;
+    }
+
+    /**
+     * Return the scheduling mode the task was started with
+     *
+     * @return Scheduling mode
+     */
+    public TaskGroup.ScheduleMode getScheduleMode() {
+        return this.scheduleMode;
+    }
+
+    /**
+     * Set the fire time of the next run
+     *
+     * @param fireTime Fire time (ms)
+     */
+    void setFireTime(long fireTime) {
+        this.fireTime = fireTime;
+        this.triggerState.setNextFireTime(fireTime);
+    }
+
+    /**
+     * Get the next fire time of the task trigger for the firing state of this task
+     *
+     * @param after Time after which the next fire time is searched (ms)
+     * @return Next fire time (ms), -1 if the trigger will never fire again
+     */
+    long nextFireTime(long after) {
+        Trigger trigger = this.task.getTrigger();
+        if (trigger instanceof AbstractTrigger) {
+            return ((AbstractTrigger) trigger).nextFireTime(after, this.triggerState);
+        }
+        return trigger.nextFireTime(after);
+    }
+
+    /**
+     * Return the firing state of the task
+     *
+     * @return Firing state
+     */
+    public TriggerState getTriggerState() {
+        return this.triggerState;
+    }
+
+    /**
+     * Return the fire time the next run is armed for
+     *
+     * @return Fire time (ms), -1 in the FIXED_DELAY scheduling mode
+     */
+    public long getFireTime() {
+        return this.fireTime;
+    }
+
+    /**
+     * Return the task armed on the timer, which hands this runner to the workers
+     *
+     * @return Dispatcher task
+     */
+    Runnable getDispatcher() {
+        return this.dispatcher;
+    }
+
+    /**
+     * Return the task armed on the timer when a rate limit deferred the run
+     *
+     * @return Admission task
+     */
+    Runnable getAdmission() {
+        return this.admission;
+    }
+
+    /**
+     * Set the delay of the current run induced by rate limits
+     *
+     * @param throttleDelay Delay (ms)
+     */
+    void setThrottleDelay(long throttleDelay) {
+        this.throttleDelay = throttleDelay;
+    }
+
+    /**
+     * Return the delay of the latest run induced by rate limits
+     *
+     * @return Delay (ms)
+     */
+    public long getThrottleDelay() {
+        return this.throttleDelay;
+    }
+
+    /**
+     * Return the task submitted to the workers, which runs this runner holding a permit of the task group
+     *
+     * @return Execution task
+     */
+    Runnable getExecution() {
+        return this.execution;
+    }
+
+    /**
+     * Set the handle of the dispatcher armed on the timer
+     *
+     * @param future Handle of the armed dispatcher
+     */
+    void setFuture(ScheduledFuture<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * Cancel the dispatcher armed on the timer
+     *
+     * @return true if a pending run was cancelled
+     */
+    boolean cancel() {
+        ScheduledFuture<?> future = this.future;
+        if (future != null && future.cancel(false)) {
+            this.pending.set(false);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Mark the dispatcher as armed on the timer
+     *
+     * @return false if the dispatcher is armed already and has not fired yet
+     */
+    boolean arm() {
+        return this.pending.compareAndSet(false, true);
+    }
+
+    /**
+     * Mark the dispatcher as not armed, after arming it failed or it was cancelled
+     */
+    void disarm() {
+        this.pending.set(false);
+    }
+
+    /**
+     * Whether a run is armed on the timer
+     *
+     * @return true if the armed dispatcher has not fired or been cancelled yet
+     */
+    public boolean isArmed() {
+        ScheduledFuture<?> future = this.future;
+        return future != null && !future.isDone();
     }
 
     /**
@@ -153,6 +867,33 @@ public final class TaskRunner implements Runnable {
         return timeoutFlag;
     }
 
+    /**
+     * Return the number of firings dropped because the previous run was still executing
+     *
+     * @return Skipped firings
+     */
+    public long getSkippedCount() {
+        return this.skippedCount.get();
+    }
+
+    /**
+     * Return the number of firings merged into a queued firing because the previous run was still executing
+     *
+     * @return Coalesced firings
+     */
+    public long getCoalescedCount() {
+        return this.coalescedCount.get();
+    }
+
+    /**
+     * Return the task executed by this runner
+     *
+     * @return Task
+     */
+    public Task getTask() {
+        return this.task;
+    }
+
     /**
      * Return the start time of this task execution
      */
@@ -160,4 +901,146 @@ public final class TaskRunner implements Runnable {
         return this.startTime;
     }
 
+    /*
+     * Retry of a failed execution
+     */
+    private static final class Retry {
+        private final int attempt;
+
+        /*
+         * Scheduled fire time of the firing which is retried (ms)
+         */
+        private final long fireTime;
+
+        /*
+         * Earliest time the retry runs, after its backoff delay (ms)
+         */
+        private final long dueTime;
+
+        private Retry(int attempt, long fireTime, long dueTime) {
+            this.attempt = attempt;
+            this.fireTime = fireTime;
+            this.dueTime = dueTime;
+        }
+    }
+
+    /*
+     * One execution of the job on the thread which executes it, and the context passed to the job.
+     * Reused by a later execution once it has completed without timeout or cancellation
+     */
+    private final class Execution implements JobContext {
+        private static final int EXECUTING = 0;
+        private static final int TIMEOUT = 1;
+        private static final int DONE = 2;
+
+        private final TaskRunner runner = TaskRunner.this;
+        private final CancellationToken token = new CancellationToken();
+        private final Runnable deadlineCommand = () -> TaskRunner.this.timeout(this);
+
+        /*
+         * Set by begin() on the executing thread before the execution is published
+         */
+        private Thread thread;
+        private TaskGroup.Lease lease;
+        private int attempt;
+        private int epoch;
+        private long scheduledFireTime;
+        private long fireTime;
+
+        private volatile ScheduledFuture<?> deadline;
+
+        /*
+         * Guarded by this, so the thread is never interrupted once the job has returned
+         */
+        private int state = DONE;
+
+        private synchronized void begin(TaskGroup.Lease lease, int attempt, long scheduledFireTime, long fireTime) {
+            this.thread = Thread.currentThread();
+            this.lease = lease;
+            this.attempt = attempt;
+            this.epoch = TaskRunner.this.epoch;
+            this.scheduledFireTime = scheduledFireTime > 0 ? scheduledFireTime : fireTime;
+            this.fireTime = fireTime;
+            this.deadline = null;
+            this.state = EXECUTING;
+        }
+
+        @Override
+        public long getScheduledFireTime() {
+            return this.scheduledFireTime;
+        }
+
+        @Override
+        public long getFireTime() {
+            return this.fireTime;
+        }
+
+        @Override
+        public int getAttempt() {
+            return this.attempt;
+        }
+
+        @Override
+        public Task getTask() {
+            return task;
+        }
+
+        @Override
+        public String getGroupName() {
+            TaskGroup group = task.getGroup();
+            return group != null ? group.getName() : null;
+        }
+
+        @Override
+        public Map<String, Object> getData() {
+            return data;
+        }
+
+        @Override
+        public CancellationToken getCancellationToken() {
+            return this.token;
+        }
+
+        /*
+         * Mark the execution as timed out, false if the job has returned
+         */
+        private synchronized boolean timeout() {
+            if (this.state != EXECUTING) {
+                return false;
+            }
+            this.state = TIMEOUT;
+            return true;
+        }
+
+        /*
+         * Cancel the token and interrupt the thread of a timed out execution, unless the job has returned
+         */
+        private synchronized void interrupt() {
+            if (this.state == TIMEOUT) {
+                this.token.cancel();
+                this.thread.interrupt();
+            }
+        }
+
+        private synchronized boolean isTimeout() {
+            return this.state == TIMEOUT;
+        }
+
+        /*
+         * Mark the job as returned, an interrupt delivered by the timeout is cleared so it does not hit the next job.
+         * Returns whether the execution timed out
+         */
+        private boolean finish() {
+            boolean timeout;
+            synchronized (this) {
+                timeout = this.state == TIMEOUT;
+                this.state = DONE;
+            }
+            if (timeout) {
+                Thread.interrupted();
+            }
+            return timeout;
+        }
+    }
+
 }
@@ -0,0 +1,686 @@
+package org.pinae.rafiki.task.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Hashed timing wheel scheduler
+ * <p>
+ * Scheduled tasks are hashed into the buckets of a wheel by their deadline, so arming and cancelling a task costs O(1)
+ * regardless of how many tasks are scheduled. A single ticker thread advances the wheel every tick and hands expired
+ * tasks to the worker executor, or runs them on the ticker thread when there is no worker executor.
+ * <p>
+ * The wheel has a single level: deadlines further away than one turn of the wheel (5.12 s with the defaults) are put
+ * into their bucket with a count of remaining rounds, which the ticker decrements each time it passes the bucket.
+ * Hierarchical wheels avoid revisiting such tasks, but cascade them between levels instead; a dispatcher mostly arms
+ * deadlines within seconds of now, so the extra levels would cost more than the rounds they save.
+ * <p>
+ * Cancelled tasks are unlinked from their bucket the next time the ticker passes it.
+ * Timing precision is one tick.
+ * <p>
+ * Like ScheduledThreadPoolExecutor, {@link #shutdown()} cancels periodic tasks but still runs the delayed one-shot
+ * tasks, the ticker ends when none is left. {@link #shutdownNow()} cancels and returns all of them.
+ * The ticker is a daemon thread unless {@link #setDaemon(boolean)} says otherwise.
+ *
+ * @author Huiyugeng
+ */
+public class HashedWheelScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+    private static final Logger logger = LogManager.getLogger(HashedWheelScheduler.class);
+
+    private static final int STATE_INIT = 0;
+    private static final int STATE_STARTED = 1;
+    private static final int STATE_SHUTDOWN = 2;
+    private static final int STATE_STOP = 3;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<WheelTask> STATE = AtomicIntegerFieldUpdater.newUpdater(WheelTask.class, "state");
+
+    private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long tickDuration;
+
+    /*
+     * Executor running expired tasks, null to run them on the ticker thread
+     */
+    private final Executor workerExecutor;
+
+    /*
+     * Whether the worker executor was created by this scheduler and is shut down with it
+     */
+    private final boolean ownWorkerExecutor;
+
+    /*
+     * Tasks armed since the last tick, a lock-free stack linked through the tasks themselves
+     */
+    private final AtomicReference<WheelTask<?>> pendingTasks = new AtomicReference<>();
+
+    /*
+     * Number of scheduled tasks which are neither dispatched nor cancelled
+     */
+    private final LongAdder taskCount = new LongAdder();
+
+    private final Thread ticker;
+    private final String name;
+
+    private volatile long startTime;
+    private long tick;
+
+    /**
+     * Constructor, 10 ms tick, 512 buckets, expired tasks run on the ticker thread
+     *
+     * @param name Scheduler name, used as ticker thread name
+     */
+    public HashedWheelScheduler(String name) {
+        this(name, 10, TimeUnit.MILLISECONDS, 512, null);
+    }
+
+    /**
+     * Constructor, 10 ms tick, 512 buckets, expired tasks run on a fixed worker pool
+     *
+     * @param name          Scheduler name, used as ticker thread name
+     * @param workerThreads Number of worker threads
+     */
+    public HashedWheelScheduler(String name, int workerThreads) {
+        this(name, 10, TimeUnit.MILLISECONDS, 512, Executors.newFixedThreadPool(workerThreads, new NamedThreadFactory(name + "-worker", true)),
+                true);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param name           Scheduler name, used as ticker thread name
+     * @param tickDuration   Duration of one tick
+     * @param unit           Time unit of tick duration
+     * @param ticksPerWheel  Number of buckets, rounded up to a power of 2
+     * @param workerExecutor Executor running expired tasks, null to run them on the ticker thread
+     */
+    public HashedWheelScheduler(String name, long tickDuration, TimeUnit unit, int ticksPerWheel, Executor workerExecutor) {
+        this(name, tickDuration, unit, ticksPerWheel, workerExecutor, false);
+    }
+
+    private HashedWheelScheduler(String name, long tickDuration, TimeUnit unit, int ticksPerWheel, Executor workerExecutor,
+                                 boolean ownWorkerExecutor) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^30: " + ticksPerWheel);
+        }
+
+        int buckets = 1;
+        while (buckets < ticksPerWheel) {
+            buckets <<= 1;
+        }
+        this.wheel = new Bucket[buckets];
+        for (int i = 0; i < buckets; i++) {
+            this.wheel[i] = new Bucket();
+        }
+        this.mask = buckets - 1;
+        this.tickDuration = unit.toNanos(tickDuration);
+
+        this.name = name;
+        this.workerExecutor = workerExecutor;
+        this.ownWorkerExecutor = ownWorkerExecutor;
+
+        this.ticker = new Thread(new Ticker(), name + " Wheel-Ticker");
+        this.ticker.setDaemon(true);
+    }
+
+    /**
+     * Set whether the ticker is a daemon thread, a non-daemon ticker keeps the JVM alive until shutdown
+     *
+     * @param daemon true for a daemon ticker (default)
+     * @throws IllegalStateException The scheduler has already been started
+     */
+    public void setDaemon(boolean daemon) {
+        if (this.state.get() != STATE_INIT) {
+            throw new IllegalStateException(name + " has already been started");
+        }
+        this.ticker.setDaemon(daemon);
+    }
+
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        if (command == null || unit == null) {
+            throw new NullPointerException();
+        }
+        return arm(new WheelTask<Void>(command, deadline(delay, unit), 0));
+    }
+
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        if (callable == null || unit == null) {
+            throw new NullPointerException();
+        }
+        return arm(new WheelTask<V>(callable, deadline(delay, unit), 0));
+    }
+
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        if (command == null || unit == null) {
+            throw new NullPointerException();
+        }
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be greater than 0: " + period);
+        }
+        return arm(new WheelTask<Void>(command, deadline(initialDelay, unit), unit.toNanos(period)));
+    }
+
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        if (command == null || unit == null) {
+            throw new NullPointerException();
+        }
+        if (delay <= 0) {
+            throw new IllegalArgumentException("delay must be greater than 0: " + delay);
+        }
+        return arm(new WheelTask<Void>(command, deadline(initialDelay, unit), -unit.toNanos(delay)));
+    }
+
+    public void execute(Runnable command) {
+        schedule(command, 0, TimeUnit.NANOSECONDS);
+    }
+
+    public void shutdown() {
+        if (this.state.compareAndSet(STATE_INIT, STATE_SHUTDOWN)) {
+            if (this.ownWorkerExecutor) {
+                ((ExecutorService) this.workerExecutor).shutdown();
+            }
+        } else {
+            // The ticker cancels the periodic tasks and ends once the delayed tasks have run
+            this.state.compareAndSet(STATE_STARTED, STATE_SHUTDOWN);
+        }
+    }
+
+    public List<Runnable> shutdownNow() {
+        List<Runnable> unexecuted = new ArrayList<>();
+        if (this.state.getAndSet(STATE_STOP) != STATE_STOP) {
+            if (this.ticker.isAlive()) {
+                this.ticker.interrupt();
+                if (Thread.currentThread() != this.ticker) {
+                    boolean interrupted = false;
+                    while (this.ticker.isAlive()) {
+                        try {
+                            this.ticker.join(100);
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            for (Bucket bucket : this.wheel) {
+                bucket.drain(unexecuted);
+            }
+            WheelTask<?> task = this.pendingTasks.getAndSet(null);
+            while (task != null) {
+                WheelTask<?> next = task.next;
+                task.next = null;
+                unexecuted.add(task);
+                task = next;
+            }
+
+            List<Runnable> cancelled = new ArrayList<>(unexecuted.size());
+            for (Runnable runnable : unexecuted) {
+                if (((WheelTask<?>) runnable).cancel(false)) {
+                    cancelled.add(runnable);
+                }
+            }
+            unexecuted = cancelled;
+
+            if (this.ownWorkerExecutor) {
+                ((ExecutorService) this.workerExecutor).shutdown();
+            }
+        }
+        return unexecuted;
+    }
+
+    public boolean isShutdown() {
+        return this.state.get() >= STATE_SHUTDOWN;
+    }
+
+    public boolean isTerminated() {
+        if (!isShutdown() || this.ticker.isAlive()) {
+            return false;
+        }
+        return !this.ownWorkerExecutor || ((ExecutorService) this.workerExecutor).isTerminated();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        this.ticker.join(Math.max(1, unit.toMillis(timeout)));
+        if (this.ownWorkerExecutor) {
+            long remaining = deadline - System.nanoTime();
+            return ((ExecutorService) this.workerExecutor).awaitTermination(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+        }
+        return !this.ticker.isAlive();
+    }
+
+    /**
+     * Get the number of scheduled tasks which are neither dispatched nor cancelled
+     *
+     * @return Number of scheduled tasks
+     */
+    public int size() {
+        return this.taskCount.intValue();
+    }
+
+    public String toString() {
+        return name;
+    }
+
+    private long deadline(long delay, TimeUnit unit) {
+        start();
+        return System.nanoTime() - this.startTime + Math.max(0, unit.toNanos(delay));
+    }
+
+    private void start() {
+        if (this.state.get() == STATE_INIT && this.state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+            this.startTime = System.nanoTime();
+            this.ticker.start();
+        }
+    }
+
+    private <V> WheelTask<V> arm(WheelTask<V> task) {
+        if (isShutdown()) {
+            throw new RejectedExecutionException(name + " has been shut down");
+        }
+        this.taskCount.increment();
+        push(task);
+
+        return task;
+    }
+
+    private void push(WheelTask<?> task) {
+        WheelTask<?> head;
+        do {
+            head = this.pendingTasks.get();
+            task.next = head;
+        } while (!this.pendingTasks.compareAndSet(head, task));
+    }
+
+    private void dispatch(WheelTask<?> task) {
+        if (this.workerExecutor != null) {
+            try {
+                this.workerExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                logger.warn(String.format("scheduler=%s; action=reject; exception=%s", name, e.getMessage()));
+                task.cancel(false);
+            }
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Ticker advancing the wheel
+     */
+    private class Ticker implements Runnable {
+
+        public void run() {
+            try {
+                boolean draining = false;
+                while (true) {
+                    int current = state.get();
+                    if (current == STATE_STOP) {
+                        break;
+                    }
+                    if (current == STATE_SHUTDOWN) {
+                        if (!draining) {
+                            draining = true;
+                            cancelPeriodicTasks();
+                        }
+                        if (taskCount.sum() == 0) {
+                            break;
+                        }
+                    }
+
+                    long deadline = waitForNextTick();
+                    if (deadline < 0) {
+                        break;
+                    }
+
+                    transferPendingTasks();
+
+                    Bucket bucket = wheel[(int) (tick & mask)];
+                    bucket.expire(deadline);
+                    tick++;
+                }
+            } finally {
+                if (ownWorkerExecutor) {
+                    ((ExecutorService) workerExecutor).shutdown();
+                }
+            }
+        }
+
+        private long waitForNextTick() {
+            long deadline = tickDuration * (tick + 1);
+            while (true) {
+                long current = System.nanoTime() - startTime;
+                long sleepNanos = deadline - current;
+                if (sleepNanos <= 0) {
+                    return current;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (state.get() == STATE_STOP) {
+                        return -1;
+                    }
+                }
+            }
+        }
+
+        private void transferPendingTasks() {
+            WheelTask<?> task = pendingTasks.getAndSet(null);
+            while (task != null) {
+                WheelTask<?> next = task.next;
+                task.next = null;
+
+                if (task.isPeriodic() && isShutdown()) {
+                    task.cancel(false);
+                } else if (!task.isCancelled()) {
+                    long calculated = task.deadline / tickDuration;
+                    task.remainingRounds = (calculated - tick) / wheel.length;
+
+                    long ticks = Math.max(calculated, tick);
+                    wheel[(int) (ticks & mask)].add(task);
+                }
+                task = next;
+            }
+        }
+
+        private void cancelPeriodicTasks() {
+            for (Bucket bucket : wheel) {
+                bucket.cancelPeriodic();
+            }
+            transferPendingTasks();
+        }
+    }
+
+    /**
+     * Bucket of the wheel, a doubly linked list only touched by the ticker thread
+     */
+    private final class Bucket {
+        private WheelTask<?> head;
+        private WheelTask<?> tail;
+
+        void add(WheelTask<?> task) {
+            if (head == null) {
+                head = tail = task;
+            } else {
+                tail.next = task;
+                task.prev = tail;
+                tail = task;
+            }
+        }
+
+        void expire(long deadline) {
+            WheelTask<?> task = head;
+            while (task != null) {
+                WheelTask<?> next = task.next;
+                if (task.isCancelled()) {
+                    remove(task);
+                } else if (task.remainingRounds <= 0) {
+                    remove(task);
+                    if (task.deadline <= deadline) {
+                        if (task.compareAndSetState(WheelTask.WAITING, WheelTask.RUNNING)) {
+                            taskCount.decrement();
+                            dispatch(task);
+                        }
+                    } else {
+                        // Deadline was hashed into the wrong bucket, should never happen
+                        logger.warn(String.format("scheduler=%s; action=expire; exception=task in wrong bucket", name));
+                        push(task);
+                    }
+                } else {
+                    task.remainingRounds--;
+                }
+                task = next;
+            }
+        }
+
+        void remove(WheelTask<?> task) {
+            if (task.prev != null) {
+                task.prev.next = task.next;
+            }
+            if (task.next != null) {
+                task.next.prev = task.prev;
+            }
+            if (task == head) {
+                head = task.next;
+            }
+            if (task == tail) {
+                tail = task.prev;
+            }
+            task.prev = null;
+            task.next = null;
+        }
+
+        void cancelPeriodic() {
+            for (WheelTask<?> task = head; task != null; task = task.next) {
+                if (task.isPeriodic()) {
+                    task.cancel(false);
+                }
+            }
+        }
+
+        void drain(List<Runnable> tasks) {
+            WheelTask<?> task = head;
+            while (task != null) {
+                WheelTask<?> next = task.next;
+                remove(task);
+                tasks.add(task);
+                task = next;
+            }
+        }
+    }
+
+    /**
+     * Task scheduled on the wheel
+     * <p>
+     * Kept small on purpose: one object per scheduled task, no wrapper around the runnable
+     */
+    private final class WheelTask<V> implements RunnableScheduledFuture<V> {
+
+        static final int WAITING = 0;
+        static final int RUNNING = 1;
+        static final int DONE = 2;
+        static final int EXCEPTIONAL = 3;
+        static final int CANCELLED = 4;
+
+        /*
+         * Runnable or Callable
+         */
+        private final Object command;
+
+        /*
+         * Result or exception
+         */
+        private Object outcome;
+
+        /*
+         * WAITING on the wheel, RUNNING once dispatched, then DONE, EXCEPTIONAL or CANCELLED
+         */
+        volatile int state;
+
+        private volatile Thread runner;
+
+        /*
+         * Deadline relative to the start of the scheduler (ns)
+         */
+        private long deadline;
+
+        /*
+         * Period (ns): 0 one-shot, positive fixed rate, negative fixed delay
+         */
+        private final long period;
+
+        private long remainingRounds;
+
+        private WheelTask<?> prev;
+        private WheelTask<?> next;
+
+        WheelTask(Object command, long deadline, long period) {
+            this.command = command;
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        boolean compareAndSetState(int expect, int update) {
+            return STATE.compareAndSet(this, expect, update);
+        }
+
+        public boolean isPeriodic() {
+            return this.period != 0;
+        }
+
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(this.deadline - (System.nanoTime() - startTime), TimeUnit.NANOSECONDS);
+        }
+
+        public int compareTo(Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+            long diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+            return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            while (true) {
+                int current = this.state;
+                if (current == WAITING) {
+                    if (compareAndSetState(WAITING, CANCELLED)) {
+                        taskCount.decrement();
+                        signal();
+                        return true;
+                    }
+                } else if (current == RUNNING) {
+                    if (compareAndSetState(RUNNING, CANCELLED)) {
+                        Thread thread = this.runner;
+                        if (mayInterruptIfRunning && thread != null) {
+                            thread.interrupt();
+                        }
+                        signal();
+                        return true;
+                    }
+                } else {
+                    return false;
+                }
+            }
+        }
+
+        public boolean isCancelled() {
+            return this.state == CANCELLED;
+        }
+
+        public boolean isDone() {
+            return this.state >= DONE;
+        }
+
+        public void run() {
+            if (this.state != RUNNING) {
+                return;
+            }
+            this.runner = Thread.currentThread();
+            try {
+                Object result = null;
+                if (this.command instanceof Callable) {
+                    result = ((Callable<?>) this.command).call();
+                } else {
+                    ((Runnable) this.command).run();
+                }
+
+                if (isPeriodic()) {
+                    if (isShutdown()) {
+                        cancel(false);
+                    } else if (compareAndSetState(RUNNING, WAITING)) {
+                        this.deadline = this.period > 0 ? this.deadline + this.period : System.nanoTime() - startTime - this.period;
+                        taskCount.increment();
+                        push(this);
+                        if (isShutdown()) {
+                            // Raced with shutdown, the ticker may have cancelled the periodic tasks already
+                            cancel(false);
+                        }
+                    }
+                } else {
+                    this.outcome = result;
+                    if (compareAndSetState(RUNNING, DONE)) {
+                        signal();
+                    }
+                }
+            } catch (Throwable e) {
+                this.outcome = e;
+                if (compareAndSetState(RUNNING, EXCEPTIONAL)) {
+                    signal();
+                }
+            } finally {
+                this.runner = null;
+            }
+        }
+
+        public V get() throws InterruptedException, ExecutionException {
+            synchronized (this) {
+                while (!isDone()) {
+                    wait();
+                }
+            }
+            return report();
+        }
+
+        public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (this) {
+                while (!isDone()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new TimeoutException();
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+            return report();
+        }
+
+        @SuppressWarnings("unchecked")
+        private V report() throws ExecutionException {
+            int current = this.state;
+            if (current == CANCELLED) {
+                throw new CancellationException();
+            }
+            if (current == EXCEPTIONAL) {
+                throw new ExecutionException((Throwable) this.outcome);
+            }
+            return (V) this.outcome;
+        }
+
+        private void signal() {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.pinae.rafiki.task.scheduler;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factory naming its threads "prefix-n"
+ *
+ * @author Huiyugeng
+ */
+public class NamedThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    private final String prefix;
+    private final boolean daemon;
+
+    /**
+     * Constructor, creating non-daemon threads
+     *
+     * @param prefix Thread name prefix
+     */
+    public NamedThreadFactory(String prefix) {
+        this(prefix, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param prefix Thread name prefix
+     * @param daemon Whether the threads are daemon threads
+     */
+    public NamedThreadFactory(String prefix, boolean daemon) {
+        this.prefix = prefix;
+        this.daemon = daemon;
+    }
+
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, prefix + "-" + threadNumber.getAndIncrement());
+        thread.setDaemon(daemon);
+        return thread;
+    }
+}
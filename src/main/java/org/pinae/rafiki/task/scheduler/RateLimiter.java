@@ -0,0 +1,118 @@
+package org.pinae.rafiki.task.scheduler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket rate limiter
+ * <p>
+ * Implemented as a generic cell rate algorithm: a single theoretical arrival time replaces the bucket, so a permit is
+ * reserved with one compare-and-set and no refill thread. A reservation never fails, it returns how long the caller
+ * has to defer its work instead, which lets a scheduler delay firings rather than drop them.
+ * Up to burst permits are granted at once after an idle period, afterwards permits are spaced evenly at the configured rate.
+ *
+ * @author Huiyugeng
+ */
+public class RateLimiter {
+
+    /*
+     * Time between two permits at the configured rate (ns)
+     */
+    private final long interval;
+
+    /*
+     * How far the theoretical arrival time may run ahead of now without deferring, (burst - 1) * interval (ns)
+     */
+    private final long tolerance;
+
+    /*
+     * Theoretical arrival time of the next permit (ns, System.nanoTime)
+     */
+    private final AtomicLong arrivalTime;
+
+    private final LongAdder deferredCount = new LongAdder();
+    private final LongAdder deferredNanos = new LongAdder();
+
+    private final double permitsPerSecond;
+    private final int burst;
+
+    /**
+     * Constructor
+     *
+     * @param permitsPerSecond Permits granted per second
+     * @param burst            Permits granted at once after an idle period, at least 1
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("permitsPerSecond must be greater than 0: " + permitsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1: " + burst);
+        }
+
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.interval = Math.max((long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond), 1);
+        this.tolerance = (burst - 1) * this.interval;
+        this.arrivalTime = new AtomicLong(System.nanoTime() - this.tolerance);
+    }
+
+    /**
+     * Reserve a permit
+     *
+     * @return How long the caller has to wait before using the permit (ns), 0 to use it now
+     */
+    public long reserve() {
+        return reserve(System.nanoTime());
+    }
+
+    long reserve(long now) {
+        long arrival;
+        long next;
+        do {
+            arrival = this.arrivalTime.get();
+            next = Math.max(arrival, now - this.tolerance) + this.interval;
+        } while (!this.arrivalTime.compareAndSet(arrival, next));
+
+        long delay = next - this.interval - now;
+        if (delay <= 0) {
+            return 0;
+        }
+
+        this.deferredCount.increment();
+        this.deferredNanos.add(delay);
+        return delay;
+    }
+
+    /**
+     * Get the number of permits which had to be deferred
+     *
+     * @return Number of deferred permits
+     */
+    public long getDeferredCount() {
+        return this.deferredCount.sum();
+    }
+
+    /**
+     * Get the total delay induced by deferred permits
+     *
+     * @param unit Time unit of the result
+     * @return Total delay
+     */
+    public long getTotalDelay(TimeUnit unit) {
+        return unit.convert(this.deferredNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public String toString() {
+        return String.format("%s permits/s, burst %d", permitsPerSecond, burst);
+    }
+}
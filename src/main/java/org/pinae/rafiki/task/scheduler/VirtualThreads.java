@@ -0,0 +1,79 @@
+package org.pinae.rafiki.task.scheduler;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads (Java 21+) from code compiled for Java 11
+ * <p>
+ * The virtual thread API is looked up reflectively once, so the library runs unchanged on older runtimes,
+ * where {@link #isSupported()} returns false
+ *
+ * @author Huiyugeng
+ */
+public final class VirtualThreads {
+
+    /*
+     * Thread.ofVirtual(), Thread.Builder.OfVirtual.name(String, long), Thread.Builder.factory(),
+     * Executors.newThreadPerTaskExecutor(ThreadFactory), null when the runtime has no virtual threads
+     */
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builderClass.getMethod("name", String.class, long.class);
+            factory = builderClass.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Whether the runtime supports virtual threads
+     *
+     * @return true if virtual threads are available
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Create an executor starting a new virtual thread named "prefix-n" for each task
+     *
+     * @param prefix Thread name prefix
+     * @return Virtual thread per task executor
+     * @throws UnsupportedOperationException The runtime does not support virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+        }
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), prefix + "-", 1L);
+            ThreadFactory threadFactory = (ThreadFactory) FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new UnsupportedOperationException("Virtual threads are not accessible", e);
+        }
+    }
+}
@@ -4,11 +4,50 @@ import java.util.Date;
 
 /**
  * Task trigger abstract class
+ * <p>
+ * A trigger defines when to fire. Firing does not change the definition: hit counts and fire times are kept in a
+ * TriggerState, which each task passes to the state aware methods, so one trigger can serve many tasks.
+ * The methods without a state use a state of the trigger itself
  *
  * @author Huiyugeng
  */
 public abstract class AbstractTrigger implements Trigger {
 
+    /**
+     * Handling of a local fire time skipped by a daylight saving transition
+     * <p>
+     * SHIFT_FORWARD: Fire later by the length of the gap, 02:30 becomes 03:30 when clocks jump from 02:00 to 03:00
+     * NEXT_VALID_TIME: Fire at the transition, 02:30 becomes 03:00
+     * SKIP: Do not fire
+     */
+    public enum GapPolicy {
+        SHIFT_FORWARD, NEXT_VALID_TIME, SKIP
+    }
+
+    /**
+     * Handling of a local fire time repeated by a daylight saving transition
+     * <p>
+     * EARLIER: Fire at the first occurrence, before clocks are set back
+     * LATER: Fire at the second occurrence, after clocks are set back
+     */
+    public enum OverlapPolicy {
+        EARLIER, LATER
+    }
+
+    /*
+     * Whether a trigger class overrides match(Date), as triggers written before firing states did
+     */
+    private static final ClassValue<Boolean> CUSTOM_MATCH = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("match", Date.class).getDeclaringClass() != AbstractTrigger.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
     /*
      * Trigger name
      */
@@ -45,9 +84,20 @@ public abstract class AbstractTrigger implements Trigger {
     private long startDelayTime = 0;
 
     /*
-     * Trigger hit times
+     * Firing state used by the methods without a state
+     */
+    private TriggerState state = new TriggerState();
+
+    /*
+     * Resolution of local times skipped or repeated by daylight saving transitions, used by time zone aware triggers
+     */
+    private GapPolicy gapPolicy = GapPolicy.SHIFT_FORWARD;
+    private OverlapPolicy overlapPolicy = OverlapPolicy.EARLIER;
+
+    /*
+     * Days and time ranges in which the trigger does not fire, may be shared with other triggers
      */
-    private long executeCount = 0;
+    private ExclusionCalendar exclusionCalendar = null;
 
     /**
      * Constructor, build default trigger name
@@ -130,28 +180,319 @@ public abstract class AbstractTrigger implements Trigger {
         this.startTime = new Date((new Date()).getTime() + startDelayTime);
     }
 
+    public GapPolicy getGapPolicy() {
+        return gapPolicy;
+    }
+
+    /**
+     * <p>Set how a local fire time skipped by a daylight saving transition is handled</p>
+     *
+     * <p>
+     * Default is GapPolicy.SHIFT_FORWARD. Time windows always start and end at the transition
+     * when their bounds fall into a gap
+     * </p>
+     *
+     * @param gapPolicy Gap policy
+     */
+    public void setGapPolicy(GapPolicy gapPolicy) {
+        this.gapPolicy = gapPolicy != null ? gapPolicy : GapPolicy.SHIFT_FORWARD;
+    }
+
+    public OverlapPolicy getOverlapPolicy() {
+        return overlapPolicy;
+    }
+
+    /**
+     * <p>Set how a local time repeated by a daylight saving transition is handled</p>
+     *
+     * <p>
+     * Default is OverlapPolicy.EARLIER. The policy applies to fire times and to the bounds of time windows,
+     * so a repeated local time never fires twice
+     * </p>
+     *
+     * @param overlapPolicy Overlap policy
+     */
+    public void setOverlapPolicy(OverlapPolicy overlapPolicy) {
+        this.overlapPolicy = overlapPolicy != null ? overlapPolicy : OverlapPolicy.EARLIER;
+    }
+
+    public ExclusionCalendar getExclusionCalendar() {
+        return exclusionCalendar;
+    }
+
+    /**
+     * <p>Set the days and time ranges in which the trigger does not fire</p>
+     *
+     * <p>
+     * The calendar is not copied, changes to it apply to every trigger it is set on
+     * </p>
+     *
+     * @param exclusionCalendar Exclusion calendar, null to fire at any time
+     */
+    public void setExclusionCalendar(ExclusionCalendar exclusionCalendar) {
+        this.exclusionCalendar = exclusionCalendar;
+    }
+
+    /**
+     * Whether the given time is excluded by the exclusion calendar
+     *
+     * @param time Time (ms)
+     * @return true if the trigger must not fire at this time
+     */
+    protected boolean isExcluded(long time) {
+        ExclusionCalendar exclusionCalendar = this.exclusionCalendar;
+        return exclusionCalendar != null && exclusionCalendar.isExcluded(time);
+    }
+
     public void incExecuteCount() {
-        executeCount++;
+        state.incExecuteCount();
     }
 
     public boolean isFinish() {
+        return isFinish(this.state);
+    }
 
-        if (repeatCount != 0 && repeatCount <= executeCount) {
+    /**
+     * Whether the trigger will not fire any more for the given firing state
+     *
+     * @param state Firing state
+     * @return true if the repeat count is used up or the end time has passed
+     */
+    public boolean isFinish(TriggerState state) {
+
+        if (repeatCount != 0 && repeatCount <= state.getExecuteCount()) {
             return true;
         }
 
-        long now = new Date().getTime();
-        if (endTime != null && endTime.getTime() <= now) {
+        if (endTime != null && endTime.getTime() <= System.currentTimeMillis()) {
             return true;
         }
 
         return false;
     }
 
-    public abstract boolean match(Date now);
+    /**
+     * <p>Whether the trigger fires at the given time, counting the hit towards the repeat count</p>
+     *
+     * <p>
+     * Subclasses define the trigger condition with isTriggerTime
+     * </p>
+     *
+     * @param now Time to test
+     * @return true if the trigger fires
+     */
+    public boolean match(Date now) {
+        return match(now, this.state);
+    }
+
+    /**
+     * <p>Whether the trigger fires at the given time, counting the hit in the given firing state</p>
+     *
+     * <p>
+     * Concurrent matches never count more hits than the repeat count. A subclass overriding match(Date) is
+     * called through it and counts the hit in the state of the trigger itself
+     * </p>
+     *
+     * @param now   Time to test
+     * @param state Firing state
+     * @return true if the trigger fires
+     */
+    public boolean match(Date now, TriggerState state) {
+        if (state != this.state && isCustomMatch(this)) {
+            return match(now);
+        }
+        return match(now.getTime(), state);
+    }
+
+    /**
+     * <p>Whether the trigger fires at the given time, counting the hit in the given firing state</p>
+     *
+     * <p>
+     * Same as match(Date, TriggerState) without allocating a Date, unless the subclass overrides match(Date)
+     * </p>
+     *
+     * @param time  Time to test (ms)
+     * @param state Firing state
+     * @return true if the trigger fires
+     */
+    public boolean match(long time, TriggerState state) {
+        if (state != this.state && isCustomMatch(this)) {
+            return match(new Date(time));
+        }
+        return isMatch(time, state) && fire(time, state);
+    }
+
+    /**
+     * Count a fire in the firing state unless the repeat count is used up
+     *
+     * @param time  Fire time (ms)
+     * @param state Firing state
+     * @return true if the fire was counted
+     */
+    protected boolean fire(long time, TriggerState state) {
+        return state.fire(time, this.repeatCount);
+    }
+
+    /**
+     * Whether the class of a trigger overrides match(Date), so isMatch does not reflect its trigger condition
+     *
+     * @param trigger Trigger
+     * @return true if the trigger defines its condition in match(Date)
+     */
+    public static boolean isCustomMatch(AbstractTrigger trigger) {
+        return CUSTOM_MATCH.get(trigger.getClass());
+    }
+
+    /**
+     * <p>Whether the trigger would fire at the given time</p>
+     *
+     * <p>
+     * Unlike match, the hit is not counted, so the trigger can be tested any number of times
+     * </p>
+     *
+     * @param time Time (ms)
+     * @return true if the trigger is not finished, the time is not excluded and the trigger condition holds
+     */
+    public boolean isMatch(long time) {
+        return isMatch(time, this.state);
+    }
+
+    /**
+     * Whether the trigger would fire at the given time for the given firing state, without counting the hit
+     *
+     * @param time  Time (ms)
+     * @param state Firing state
+     * @return true if the trigger is not finished, the time is not excluded and the trigger condition holds
+     */
+    public boolean isMatch(long time, TriggerState state) {
+        return !isFinish(state) && !isExcluded(time) && isTriggerTime(time, state);
+    }
+
+    /**
+     * <p>Whether the trigger condition holds at the given time for the given firing state</p>
+     *
+     * <p>
+     * Only triggers depending on earlier fires override it, the default implementation calls isTriggerTime(time)
+     * </p>
+     *
+     * @param time  Time (ms)
+     * @param state Firing state
+     * @return true if the trigger condition holds
+     */
+    protected boolean isTriggerTime(long time, TriggerState state) {
+        return isTriggerTime(time);
+    }
+
+    /**
+     * <p>Whether the trigger condition holds at the given time</p>
+     *
+     * <p>
+     * Repeat count, end time and exclusions are already handled by isMatch. The default implementation
+     * asks getFireTimeAfter, subclasses override it with a direct test
+     * </p>
+     *
+     * @param time Time (ms)
+     * @return true if the trigger condition holds
+     */
+    protected boolean isTriggerTime(long time) {
+        return getFireTimeAfter(time - 1) == time;
+    }
+
+    /**
+     * <p>Get the relative cost of testing a time with isMatch</p>
+     *
+     * <p>
+     * Mixed triggers test cheaper triggers first. Constant time tests cost 1, searches over
+     * time periods or dates cost a few units, the default test through getFireTimeAfter costs 16
+     * </p>
+     *
+     * @return Relative cost
+     */
+    public int getMatchCost() {
+        return 16;
+    }
+
+    @Override
+    public long nextFireTime(long afterEpochMillis) {
+        return nextFireTime(afterEpochMillis, this.state);
+    }
+
+    /**
+     * Get the next fire time of the trigger for the given firing state
+     * <p>
+     * See {@link Trigger#nextFireTime(long)}
+     *
+     * @param afterEpochMillis Time after which the next fire time is searched (ms)
+     * @param state            Firing state
+     * @return Next fire time (ms), -1 if the trigger will never fire again
+     */
+    public long nextFireTime(long afterEpochMillis, TriggerState state) {
+
+        if (isFinish(state)) {
+            return -1;
+        }
+
+        long after = afterEpochMillis;
+        if (startTime != null && startTime.getTime() - 1 > after) {
+            after = startTime.getTime() - 1;
+        }
+
+        long next = getFireTimeAfter(after, state);
+
+        // Skip excluded days and time ranges as a whole, then search again from the first included time
+        ExclusionCalendar exclusionCalendar = this.exclusionCalendar;
+        while (next >= 0 && exclusionCalendar != null && exclusionCalendar.isExcluded(next)) {
+            long included = exclusionCalendar.getNextIncludedTime(next);
+            if (included < 0 || (endTime != null && endTime.getTime() <= included)) {
+                return -1;
+            }
+            next = getFireTimeAfter(included - 1, state);
+        }
+
+        if (next < 0 || (endTime != null && endTime.getTime() <= next)) {
+            return -1;
+        }
+
+        return next;
+    }
+
+    /**
+     * <p>Get the earliest time strictly after the given time which meets the trigger condition</p>
+     *
+     * <p>
+     * Start time, end time and repeat count are already handled by nextFireTime.
+     * The default implementation fires right after the given time, which behaves like polling the trigger
+     * every repeat interval. Subclasses override it with an exact calculation
+     * </p>
+     *
+     * @param afterEpochMillis Time after which the fire time is searched (ms)
+     * @return Fire time (ms), -1 if there is none
+     */
+    protected long getFireTimeAfter(long afterEpochMillis) {
+        return afterEpochMillis + 1;
+    }
+
+    /**
+     * <p>Get the earliest time strictly after the given time which meets the trigger condition for the given firing state</p>
+     *
+     * <p>
+     * Only triggers depending on earlier fires override it, the default implementation calls getFireTimeAfter(time)
+     * </p>
+     *
+     * @param afterEpochMillis Time after which the fire time is searched (ms)
+     * @param state            Firing state
+     * @return Fire time (ms), -1 if there is none
+     */
+    protected long getFireTimeAfter(long afterEpochMillis, TriggerState state) {
+        return getFireTimeAfter(afterEpochMillis);
+    }
 
     public Trigger clone() throws CloneNotSupportedException {
         Object cloneObj = super.clone();
+        if (cloneObj instanceof AbstractTrigger) {
+            // The clone continues from the firing state of the trigger without sharing it
+            ((AbstractTrigger) cloneObj).state = this.state.copy();
+        }
         if (cloneObj instanceof Trigger) {
             return (Trigger) cloneObj;
         }
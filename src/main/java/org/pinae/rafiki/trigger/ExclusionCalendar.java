@@ -0,0 +1,226 @@
+package org.pinae.rafiki.trigger;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.pinae.rafiki.StringUtils;
+import org.pinae.rafiki.trigger.helper.TimeWindows;
+import org.pinae.rafiki.trigger.helper.ZoneOffsetCache;
+
+/**
+ * Exclusion calendar
+ * <p>
+ * Excludes whole days, such as holidays, and time ranges, such as freeze windows, from the fire times of the triggers
+ * it is attached to. Excluded days are kept as a bitmap of days since 1970-01-01 in the time zone of the calendar,
+ * excluded time ranges as sorted merged windows. Every change replaces the stored arrays, so one calendar can be
+ * attached to any number of triggers and read from any thread without copying or locking.
+ *
+ * @author Huiyugeng
+ */
+public class ExclusionCalendar {
+    private static final Logger logger = LogManager.getLogger(ExclusionCalendar.class);
+
+    private static final long DAY = 86400000L;
+
+    private final ZoneOffsetCache zoneOffset;
+
+    /*
+     * Bit (day % 64) of word (day / 64) is set when the day is excluded
+     */
+    private volatile long[] days = new long[0];
+
+    /*
+     * Excluded time ranges, see TimeWindows
+     */
+    private volatile long[] windows = TimeWindows.EMPTY;
+
+    /**
+     * Constructor, days are excluded in the default time zone
+     */
+    public ExclusionCalendar() {
+        this(TimeZone.getDefault());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param zone Time zone in which days are excluded
+     */
+    public ExclusionCalendar(TimeZone zone) {
+        this.zoneOffset = ZoneOffsetCache.of(zone);
+    }
+
+    /**
+     * Exclude a whole day
+     *
+     * @param year       Year, 1970 or later
+     * @param month      Month, 1 to 12
+     * @param dayOfMonth Day of month
+     */
+    public synchronized void excludeDay(int year, int month, int dayOfMonth) {
+        long epochDay = LocalDate.of(year, month, dayOfMonth).toEpochDay();
+        if (epochDay < 0 || epochDay > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("date=%d/%d/%d; days before 1970 cannot be excluded", year, month, dayOfMonth));
+        }
+
+        int word = (int) (epochDay >>> 6);
+        long[] days = this.days;
+        if (word >= days.length) {
+            days = Arrays.copyOf(days, word + 1);
+        } else {
+            days = days.clone();
+        }
+        days[word] |= 1L << epochDay;
+        this.days = days;
+    }
+
+    /**
+     * <p>Exclude whole days</p>
+     *
+     * <p>
+     * Date format: 'yyyy/mm/dd' Support multiple dates separated by ';'
+     * For example, '2015/01/01; 2015/12/25'
+     * </p>
+     *
+     * @param dateText Excluded dates
+     */
+    public void excludeDate(String dateText) {
+        if (!StringUtils.isNotBlank(dateText)) {
+            return;
+        }
+        for (String date : dateText.split(";")) {
+            if (StringUtils.isNotBlank(date)) {
+                String[] items = date.trim().split("/");
+                try {
+                    if (items.length == 3) {
+                        excludeDay(Integer.parseInt(items[0].trim()), Integer.parseInt(items[1].trim()), Integer.parseInt(items[2].trim()));
+                        continue;
+                    }
+                } catch (NumberFormatException | DateTimeException e) {
+                    logger.warn(String.format("Parse Error: date=%s, exception=%s", date, e.getMessage()));
+                    continue;
+                }
+                logger.warn(String.format("Parse Error: date=%s", date));
+            }
+        }
+    }
+
+    /**
+     * Exclude a time range
+     *
+     * @param startTime Start time, inclusive
+     * @param endTime   End time, inclusive
+     */
+    public synchronized void excludeTime(Date startTime, Date endTime) {
+        this.windows = TimeWindows.add(this.windows, startTime.getTime(), endTime.getTime());
+    }
+
+    /**
+     * Exclude many time ranges at once
+     *
+     * @param startTimes Start times (ms), inclusive
+     * @param endTimes   End times (ms), inclusive, same length as the start times
+     */
+    public synchronized void excludeTime(long[] startTimes, long[] endTimes) {
+        this.windows = TimeWindows.addAll(this.windows, startTimes, endTimes);
+    }
+
+    /**
+     * Whether the given time is excluded
+     *
+     * @param time Time (ms)
+     * @return true if the day of the time or a time range containing it is excluded
+     */
+    public boolean isExcluded(long time) {
+        return isDayExcluded(Math.floorDiv(this.zoneOffset.toLocal(time), DAY)) || TimeWindows.indexOf(this.windows, time) >= 0;
+    }
+
+    /**
+     * Get the first time which is not excluded
+     * <p>
+     * Runs of excluded days and excluded time ranges are skipped as a whole
+     *
+     * @param time Earliest acceptable time (ms)
+     * @return First time at or after the given time which is not excluded (ms), -1 if every later time is excluded
+     */
+    public long getNextIncludedTime(long time) {
+        long[] days = this.days;
+        long[] windows = this.windows;
+
+        while (true) {
+            long epochDay = Math.floorDiv(this.zoneOffset.toLocal(time), DAY);
+            if (isDayExcluded(days, epochDay)) {
+                time = this.zoneOffset.toUtc(nextIncludedDay(days, epochDay) * DAY, AbstractTrigger.GapPolicy.NEXT_VALID_TIME,
+                        AbstractTrigger.OverlapPolicy.EARLIER);
+                continue;
+            }
+
+            int index = TimeWindows.indexOf(windows, time);
+            if (index >= 0) {
+                long end = TimeWindows.end(windows, index);
+                if (end == Long.MAX_VALUE) {
+                    return -1;
+                }
+                time = end + 1;
+                continue;
+            }
+
+            return time;
+        }
+    }
+
+    /**
+     * Get the number of excluded days
+     *
+     * @return Number of excluded days
+     */
+    public int getExcludedDayCount() {
+        int count = 0;
+        for (long word : this.days) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of excluded time ranges after overlapping and touching ranges were merged
+     *
+     * @return Number of excluded time ranges
+     */
+    public int getExcludedTimeCount() {
+        return TimeWindows.size(this.windows);
+    }
+
+    private boolean isDayExcluded(long epochDay) {
+        return isDayExcluded(this.days, epochDay);
+    }
+
+    private static boolean isDayExcluded(long[] days, long epochDay) {
+        long word = epochDay >> 6;
+        return word >= 0 && word < days.length && (days[(int) word] & (1L << epochDay)) != 0;
+    }
+
+    /*
+     * First day after the given excluded day which is not excluded
+     */
+    private static long nextIncludedDay(long[] days, long epochDay) {
+        int word = (int) ((epochDay + 1) >>> 6);
+        if (word >= days.length) {
+            return epochDay + 1;
+        }
+        long free = ~days[word] & (-1L << (epochDay + 1));
+        while (free == 0) {
+            word++;
+            if (word >= days.length) {
+                return (long) word << 6;
+            }
+            free = ~days[word];
+        }
+        return ((long) word << 6) + Long.numberOfTrailingZeros(free);
+    }
+}
@@ -27,6 +27,23 @@ public interface Trigger extends Cloneable {
 
     public boolean match(Date now);
 
+    /**
+     * Get the next fire time of the trigger
+     * <p>
+     * Returns the earliest instant strictly after the given time at which the trigger condition holds.
+     * Window based triggers return the instant right after the given time while inside a window,
+     * so callers space repeated fires by the repeat interval.
+     * Calling this method has no side effect on the trigger.
+     * The default implementation returns the millisecond after the given time, so triggers which only implement
+     * match(Date) are polled as before
+     *
+     * @param afterEpochMillis Time after which the next fire time is searched (ms)
+     * @return Next fire time (ms), -1 if the trigger will never fire again
+     */
+    public default long nextFireTime(long afterEpochMillis) {
+        return afterEpochMillis + 1;
+    }
+
     public void setStartTime(Date startTime);
 
     public void setRepeat(boolean repeat);
@@ -0,0 +1,99 @@
+package org.pinae.rafiki.trigger;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Firing state of a trigger
+ * <p>
+ * A trigger only holds the definition of when to fire, what has fired is kept here. Each task keeps its own state,
+ * so one trigger can be shared by any number of tasks, and the state is updated without locking.
+ * Triggers used on their own keep a state of their own
+ *
+ * @author Huiyugeng
+ */
+public final class TriggerState {
+
+    /*
+     * Trigger hit times
+     */
+    private final AtomicLong executeCount = new AtomicLong();
+
+    /*
+     * Latest fire time (ms), 0 before the first fire
+     */
+    private final AtomicLong lastFireTime = new AtomicLong();
+
+    /*
+     * Fire time the task is armed for (ms), -1 if unknown
+     */
+    private volatile long nextFireTime = -1;
+
+    public TriggerState() {
+    }
+
+    private TriggerState(TriggerState state) {
+        this.executeCount.set(state.executeCount.get());
+        this.lastFireTime.set(state.lastFireTime.get());
+        this.nextFireTime = state.nextFireTime;
+    }
+
+    public long getExecuteCount() {
+        return executeCount.get();
+    }
+
+    public void incExecuteCount() {
+        executeCount.incrementAndGet();
+    }
+
+    public long getLastFireTime() {
+        return lastFireTime.get();
+    }
+
+    /**
+     * Set the latest fire time if it is still the expected one
+     *
+     * @param expect       Expected latest fire time (ms)
+     * @param lastFireTime New latest fire time (ms)
+     * @return true if the fire time was set, false if another fire changed it first
+     */
+    public boolean compareAndSetLastFireTime(long expect, long lastFireTime) {
+        return this.lastFireTime.compareAndSet(expect, lastFireTime);
+    }
+
+    public long getNextFireTime() {
+        return nextFireTime;
+    }
+
+    public void setNextFireTime(long nextFireTime) {
+        this.nextFireTime = nextFireTime;
+    }
+
+    /**
+     * Count a fire unless the repeat count is used up
+     * <p>
+     * Concurrent fires never count beyond the repeat count
+     *
+     * @param time        Fire time (ms)
+     * @param repeatCount Repeat count, 0 for no limit
+     * @return true if the fire was counted
+     */
+    boolean fire(long time, int repeatCount) {
+        long count;
+        do {
+            count = this.executeCount.get();
+            if (repeatCount > 0 && count >= repeatCount) {
+                return false;
+            }
+        } while (!this.executeCount.compareAndSet(count, count + 1));
+
+        this.lastFireTime.accumulateAndGet(time, Math::max);
+        return true;
+    }
+
+    /*
+     * Copy of the state, for cloned triggers
+     */
+    TriggerState copy() {
+        return new TriggerState(this);
+    }
+}
@@ -1,5 +1,10 @@
 package org.pinae.rafiki.trigger.helper;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
@@ -7,31 +12,24 @@ import java.util.TimeZone;
 
 /**
  * Date Tools
+ * <p>
+ * Times are computed in the default time zone. Seconds, minutes and hours are added on the time line, days and months
+ * on the local calendar, a local time skipped by a daylight saving transition is shifted forward by the length of the gap
  *
  * @author Huiyugeng
  */
 public class DateHelper {
 
     public static Date nextSecond(int second) {
-        Calendar now = now();
-        now.set(Calendar.SECOND, now.get(Calendar.SECOND) + second);
-        return now.getTime();
+        return Date.from(ZonedDateTime.now().plusSeconds(second).toInstant());
     }
 
     public static Date nextMinute(int minute) {
-        Calendar now = now();
-
-        now.set(Calendar.MINUTE, now.get(Calendar.MINUTE) + minute);
-
-        return now.getTime();
+        return Date.from(ZonedDateTime.now().plusMinutes(minute).toInstant());
     }
 
     public static Date nextHour(int hour) {
-        Calendar now = now();
-
-        now.set(Calendar.HOUR_OF_DAY, now.get(Calendar.HOUR_OF_DAY) + hour);
-
-        return now.getTime();
+        return Date.from(ZonedDateTime.now().plusHours(hour).toInstant());
     }
 
     public static Date today(int hour, int minute, int second) {
@@ -43,36 +41,40 @@ public class DateHelper {
     }
 
     public static Date nextDay(int day) {
-        Calendar now = now();
-
-        day = now.get(Calendar.DAY_OF_MONTH) + day;
-        return year(now.get(Calendar.MONTH), day, now.get(Calendar.HOUR_OF_DAY), now.get(Calendar.MINUTE), now.get(Calendar.SECOND));
+        return toDate(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusDays(day));
     }
 
     public static Date nextDay(int day, int hour, int minute, int second) {
-        Calendar now = now();
-
-        day = now.get(Calendar.DAY_OF_MONTH) + day;
-        return year(now.get(Calendar.MONTH), day, hour, minute, second);
+        return toDate(time(LocalDate.now().plusDays(day), hour, minute, second));
     }
 
     public static Date nextWeekday(int weekday, int hour, int minute, int second) {
-        Calendar now = now();
+        LocalDate today = LocalDate.now();
 
-        int day = now.get(Calendar.DAY_OF_MONTH) + (7 - now.get(Calendar.DAY_OF_WEEK)) + weekday;
-        return year(now.get(Calendar.MONTH), day, hour, minute, second);
+        // Weekday counts from Sunday = 1 like Calendar.DAY_OF_WEEK
+        int dayOfWeek = today.getDayOfWeek().getValue() % 7 + 1;
+        return toDate(time(today.plusDays(7 - dayOfWeek + weekday), hour, minute, second));
     }
 
     public static Date nextMonth(int day, int hour, int minute, int second) {
-        Calendar now = now();
-
-        int month = now.get(Calendar.MONTH) + 1;
-        return year(month, day, hour, minute, second);
+        return year(LocalDate.now().getMonthValue(), day, hour, minute, second);
     }
 
+    /**
+     * Get a time of the current year
+     * <p>
+     * Fields out of range roll over into the next larger field, like a lenient Calendar
+     *
+     * @param month  Month, counting from January = 0
+     * @param day    Day of month
+     * @param hour   Hour of day
+     * @param minute Minute
+     * @param second Second
+     * @return Time
+     */
     public static Date year(int month, int day, int hour, int minute, int second) {
-        Calendar now = now();
-        return new GregorianCalendar(now.get(Calendar.YEAR), month, day, hour, minute, second).getTime();
+        LocalDate date = LocalDate.now().withDayOfYear(1).plusMonths(month).plusDays(day - 1L);
+        return toDate(time(date, hour, minute, second));
     }
 
     public static Calendar now() {
@@ -82,4 +84,12 @@ public class DateHelper {
 
         return now;
     }
+
+    private static LocalDateTime time(LocalDate date, int hour, int minute, int second) {
+        return date.atStartOfDay().plusHours(hour).plusMinutes(minute).plusSeconds(second);
+    }
+
+    private static Date toDate(LocalDateTime time) {
+        return Date.from(time.atZone(ZoneId.systemDefault()).toInstant());
+    }
 }
@@ -0,0 +1,180 @@
+package org.pinae.rafiki.trigger.helper;
+
+import java.util.Arrays;
+
+/**
+ * Time window tools
+ * <p>
+ * A set of time windows is kept in a single long array holding the start and end time (ms, both inclusive) of each window
+ * at even and odd indexes, sorted and merged where windows overlap or touch. Arrays are never modified once built,
+ * every change returns a new array, so a set can be shared and read without locking.
+ *
+ * @author Huiyugeng
+ */
+public final class TimeWindows {
+
+    /**
+     * Empty set of windows
+     */
+    public static final long[] EMPTY = new long[0];
+
+    private TimeWindows() {
+    }
+
+    /**
+     * Get the number of windows
+     *
+     * @param windows Windows
+     * @return Number of windows
+     */
+    public static int size(long[] windows) {
+        return windows.length / 2;
+    }
+
+    /**
+     * Get the index of the window containing the given time
+     *
+     * @param windows Windows
+     * @param time    Time (ms)
+     * @return Window index, -1 if no window contains the time
+     */
+    public static int indexOf(long[] windows, long time) {
+        // Only the last window starting at or before the time can contain it
+        int index = search(windows, 0, time);
+        return index >= 0 && time <= windows[2 * index + 1] ? index : -1;
+    }
+
+    /**
+     * Get the index of the first window ending at or after the given time, which may contain the time
+     *
+     * @param windows Windows
+     * @param time    Time (ms)
+     * @return Window index, -1 if every window ends before the time
+     */
+    public static int next(long[] windows, long time) {
+        int index = search(windows, 1, time - 1) + 1;
+        return index < size(windows) ? index : -1;
+    }
+
+    /**
+     * Get the start time of a window
+     *
+     * @param windows Windows
+     * @param index   Window index
+     * @return Start time (ms)
+     */
+    public static long start(long[] windows, int index) {
+        return windows[2 * index];
+    }
+
+    /**
+     * Get the end time of a window
+     *
+     * @param windows Windows
+     * @param index   Window index
+     * @return End time (ms), inclusive
+     */
+    public static long end(long[] windows, int index) {
+        return windows[2 * index + 1];
+    }
+
+    /**
+     * Add one window, merging it with the windows it overlaps or touches
+     *
+     * @param windows   Windows
+     * @param startTime Start time (ms)
+     * @param endTime   End time (ms), inclusive. A window ending before it starts is ignored
+     * @return New windows
+     */
+    public static long[] add(long[] windows, long startTime, long endTime) {
+        if (startTime > endTime) {
+            return windows;
+        }
+
+        int count = size(windows);
+
+        // Windows from first to last overlap or touch the new window
+        int first = search(windows, 1, startTime == Long.MIN_VALUE ? startTime : startTime - 2) + 1;
+        int last = search(windows, 0, endTime == Long.MAX_VALUE ? endTime : endTime + 1);
+
+        long[] result = new long[2 * (count - (last - first + 1) + 1)];
+        System.arraycopy(windows, 0, result, 0, 2 * first);
+        result[2 * first] = first <= last ? Math.min(startTime, windows[2 * first]) : startTime;
+        result[2 * first + 1] = first <= last ? Math.max(endTime, windows[2 * last + 1]) : endTime;
+        System.arraycopy(windows, 2 * (last + 1), result, 2 * first + 2, 2 * (count - last - 1));
+        return result;
+    }
+
+    /**
+     * Add many windows at once, with one sort instead of one merge per window
+     *
+     * @param windows    Windows
+     * @param startTimes Start times (ms)
+     * @param endTimes   End times (ms), inclusive, same length as the start times. Windows ending before they start are ignored
+     * @return New windows
+     */
+    public static long[] addAll(long[] windows, long[] startTimes, long[] endTimes) {
+        if (startTimes.length != endTimes.length) {
+            throw new IllegalArgumentException(String.format("startTimes=%d; endTimes=%d; windows need a start and an end time",
+                    startTimes.length, endTimes.length));
+        }
+
+        // Start and end times sorted separately describe the same union of windows
+        int count = size(windows);
+        long[] starts = new long[count + startTimes.length];
+        long[] ends = new long[count + startTimes.length];
+        for (int i = 0; i < count; i++) {
+            starts[i] = windows[2 * i];
+            ends[i] = windows[2 * i + 1];
+        }
+        int size = count;
+        for (int i = 0; i < startTimes.length; i++) {
+            if (startTimes[i] <= endTimes[i]) {
+                starts[size] = startTimes[i];
+                ends[size] = endTimes[i];
+                size++;
+            }
+        }
+        Arrays.sort(starts, 0, size);
+        Arrays.sort(ends, 0, size);
+
+        // Sweep the sorted bounds, a window closes when as many ends as starts were passed
+        long[] result = new long[2 * size];
+        int merged = 0;
+        int depth = 0;
+        int startIndex = 0;
+        for (int endIndex = 0; endIndex < size; endIndex++) {
+            long end = ends[endIndex];
+            while (startIndex < size && (end == Long.MAX_VALUE || starts[startIndex] <= end + 1)) {
+                if (depth == 0) {
+                    result[2 * merged] = starts[startIndex];
+                }
+                depth++;
+                startIndex++;
+            }
+            depth--;
+            if (depth == 0) {
+                result[2 * merged + 1] = end;
+                merged++;
+            }
+        }
+        return Arrays.copyOf(result, 2 * merged);
+    }
+
+    /*
+     * Index of the last window whose start (offset 0) or end (offset 1) is at or before the given time, -1 if there is none
+     */
+    private static int search(long[] windows, int offset, long time) {
+        int low = 0;
+        int high = windows.length / 2 - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (windows[2 * middle + offset] <= time) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+}
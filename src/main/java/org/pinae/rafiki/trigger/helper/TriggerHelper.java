@@ -3,8 +3,17 @@ package org.pinae.rafiki.trigger.helper;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
 
+import org.pinae.rafiki.trigger.AbstractTrigger;
+import org.pinae.rafiki.trigger.ExclusionCalendar;
 import org.pinae.rafiki.trigger.Trigger;
+import org.pinae.rafiki.trigger.impl.CronTrigger;
 
 /**
  * Trigger Tools
@@ -13,8 +22,16 @@ import org.pinae.rafiki.trigger.Trigger;
  */
 public class TriggerHelper {
 
+    /*
+     * Maximum number of times tested on a trigger without a fire time calculation
+     */
+    private static final long MAX_PROBE_COUNT = 1000000;
+
     /**
      * Get the trigger time of the trigger within the specified time
+     * <p>
+     * The trigger is not modified, see {@link #fireTimeIterator(Trigger, long, long, long)} for the fire times of
+     * triggers other than CronTrigger
      *
      * @param startTime Start time
      * @param endTime   End time
@@ -23,20 +40,172 @@ public class TriggerHelper {
      */
     public static List<Date> getTriggerCalendar(Date startTime, Date endTime, Trigger trigger) {
         List<Date> calendarList = new ArrayList<Date>();
-        if (endTime.getTime() > startTime.getTime()) {
-            long time = startTime.getTime();
-            while (true) {
-                time = time + 1000;
-                if (time <= endTime.getTime()) {
-                    Date date = new Date(time);
-                    if (trigger.match(date)) {
-                        calendarList.add(date);
-                    }
-                } else {
-                    break;
+        if (trigger instanceof CronTrigger) {
+            // Jump from match to match instead of testing every second, the trigger is not modified
+            CronTrigger cronTrigger = (CronTrigger) trigger;
+            ExclusionCalendar exclusionCalendar = cronTrigger.getExclusionCalendar();
+            long time = cronTrigger.nextMatchTime(startTime.getTime());
+            while (time >= 0 && time <= endTime.getTime()) {
+                if (exclusionCalendar != null && exclusionCalendar.isExcluded(time)) {
+                    // Skip the excluded days and time ranges as a whole
+                    long included = exclusionCalendar.getNextIncludedTime(time);
+                    time = included < 0 ? -1 : cronTrigger.nextMatchTime(included - 1);
+                    continue;
                 }
+                calendarList.add(new Date(time));
+                time = cronTrigger.nextMatchTime(time);
             }
+        } else {
+            fireTimeIterator(trigger, startTime.getTime(), endTime.getTime(), Long.MAX_VALUE).forEachRemaining((long time) -> {
+                calendarList.add(new Date(time));
+            });
         }
         return calendarList;
     }
+
+    /**
+     * Get the fire times of the trigger within the specified time as a lazy stream
+     * <p>
+     * See {@link #fireTimeIterator(Trigger, long, long, long)}
+     *
+     * @param trigger   Trigger
+     * @param startTime Fire times strictly after the start time are returned (ms)
+     * @param endTime   Fire times up to and including the end time are returned (ms)
+     * @param maxCount  Maximum number of fire times
+     * @return Ordered stream of fire times (ms)
+     */
+    public static LongStream fireTimes(Trigger trigger, long startTime, long endTime, long maxCount) {
+        return StreamSupport.longStream(Spliterators.spliteratorUnknownSize(fireTimeIterator(trigger, startTime, endTime, maxCount),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
+    /**
+     * Get the fire times of the trigger within the specified time as a lazy iterator
+     * <p>
+     * Fire times are computed one at a time from {@link Trigger#nextFireTime(long)}, spaced by the repeat interval
+     * the way a task group schedules in NEXT_FIRE_TIME mode. Window based triggers therefore fire once per repeat
+     * interval inside their windows. A trigger which does not repeat fires once, a trigger with a repeat count fires
+     * at most repeat count times. The trigger is not modified, so the fire times reflect the state of the trigger
+     * when the iterator is created
+     * <p>
+     * Triggers defining their condition in match(Date) only, or not implementing nextFireTime, are polled every repeat
+     * interval after the start time like a task group polls them. The polls call match(Date) on a clone of the trigger,
+     * or on the trigger itself if it cannot be cloned, and end after one million polls
+     *
+     * @param trigger   Trigger
+     * @param startTime Fire times strictly after the start time are returned (ms)
+     * @param endTime   Fire times up to and including the end time are returned (ms)
+     * @param maxCount  Maximum number of fire times
+     * @return Iterator of ascending fire times (ms)
+     */
+    public static PrimitiveIterator.OfLong fireTimeIterator(Trigger trigger, long startTime, long endTime, long maxCount) {
+        long limit = maxCount;
+        if (!trigger.isRepeat()) {
+            limit = Math.min(limit, 1);
+        } else if (trigger.getRepeatCount() > 0) {
+            limit = Math.min(limit, trigger.getRepeatCount());
+        }
+        return new FireTimeIterator(trigger, startTime, endTime, limit);
+    }
+
+    private static class FireTimeIterator implements PrimitiveIterator.OfLong {
+
+        private final Trigger trigger;
+        private final long interval;
+        private final long endTime;
+
+        /*
+         * Copy of the trigger polled with match(Date), null if the trigger calculates its fire times
+         */
+        private final Trigger probe;
+
+        /*
+         * Polls left to the probe
+         */
+        private long probeCount = MAX_PROBE_COUNT;
+
+        /*
+         * Fire times left to return
+         */
+        private long remaining;
+
+        /*
+         * Next fire time, -1 once the trigger will not fire again within the limits
+         */
+        private long next;
+
+        private FireTimeIterator(Trigger trigger, long startTime, long endTime, long maxCount) {
+            this.trigger = trigger;
+            this.interval = Math.max(trigger.getRepeatInterval(), 1);
+            this.endTime = endTime;
+            this.remaining = maxCount;
+            this.probe = isCalculated(trigger) ? null : copy(trigger);
+            this.next = this.probe != null ? poll(startTime) : advance(startTime);
+        }
+
+        private long advance(long after) {
+            if (this.remaining <= 0 || after >= this.endTime) {
+                return -1;
+            }
+            long fireTime = this.trigger.nextFireTime(after);
+            // A fire time not after the given time would never end the iteration
+            if (fireTime <= after || fireTime > this.endTime) {
+                return -1;
+            }
+            this.remaining--;
+            return fireTime;
+        }
+
+        /*
+         * Poll the probe every repeat interval after the given time until it matches
+         */
+        private long poll(long after) {
+            long time = after;
+            while (this.remaining > 0 && this.probeCount > 0 && this.endTime - time >= this.interval) {
+                time += this.interval;
+                this.probeCount--;
+                if (this.probe.match(new Date(time))) {
+                    this.remaining--;
+                    return time;
+                }
+            }
+            return -1;
+        }
+
+        public boolean hasNext() {
+            return this.next >= 0;
+        }
+
+        public long nextLong() {
+            if (this.next < 0) {
+                throw new NoSuchElementException();
+            }
+            long fireTime = this.next;
+            this.next = this.probe != null ? poll(fireTime) : advance(fireTime + this.interval - 1);
+            return fireTime;
+        }
+
+        /*
+         * Whether nextFireTime reflects the trigger condition, rather than the millisecond after the given time
+         */
+        private static boolean isCalculated(Trigger trigger) {
+            if (trigger instanceof AbstractTrigger) {
+                return !AbstractTrigger.isCustomMatch((AbstractTrigger) trigger);
+            }
+            try {
+                return !trigger.getClass().getMethod("nextFireTime", long.class).isDefault();
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+
+        private static Trigger copy(Trigger trigger) {
+            try {
+                Trigger copy = trigger.clone();
+                return copy != null ? copy : trigger;
+            } catch (CloneNotSupportedException e) {
+                return trigger;
+            }
+        }
+    }
 }
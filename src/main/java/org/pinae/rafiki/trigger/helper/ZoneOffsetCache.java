@@ -0,0 +1,247 @@
+package org.pinae.rafiki.trigger.helper;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.pinae.rafiki.trigger.AbstractTrigger;
+
+/**
+ * Cached UTC offset of a time zone
+ * <p>
+ * The offset is looked up in the zone rules once per period between two offset transitions, and served from the cached
+ * periods until a time outside of them is asked for. Lookups inside the cached periods do not allocate.
+ * <p>
+ * The two latest loaded periods are kept, as triggers sharing a zone alternate between matching around now and
+ * calculating fire times far ahead.
+ *
+ * @author Huiyugeng
+ */
+public class ZoneOffsetCache {
+
+    /*
+     * Offset changes are far below one day, local times further than that from a transition are unambiguous
+     */
+    private static final long DAY = 86400000L;
+
+    /*
+     * Shared instances, one per time zone
+     */
+    private static final ConcurrentMap<ZoneId, ZoneOffsetCache> INSTANCES = new ConcurrentHashMap<ZoneId, ZoneOffsetCache>();
+
+    private final ZoneRules rules;
+
+    /*
+     * Period of constant offset around the latest loaded lookup, and the one loaded before it
+     */
+    private volatile Period current;
+    private volatile Period previous;
+
+    /**
+     * Constructor
+     *
+     * @param zone Time Zone
+     */
+    public ZoneOffsetCache(TimeZone zone) {
+        this(zone.toZoneId());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param zone Time Zone
+     */
+    public ZoneOffsetCache(ZoneId zone) {
+        this.rules = zone.getRules();
+        this.current = this.previous = load(System.currentTimeMillis());
+    }
+
+    /**
+     * Get the shared offset cache of a time zone
+     *
+     * @param zone Time Zone
+     * @return Offset cache
+     */
+    public static ZoneOffsetCache of(TimeZone zone) {
+        return of(zone.toZoneId());
+    }
+
+    /**
+     * Get the shared offset cache of a time zone
+     *
+     * @param zone Time Zone
+     * @return Offset cache
+     */
+    public static ZoneOffsetCache of(ZoneId zone) {
+        ZoneOffsetCache zoneOffset = INSTANCES.get(zone);
+        return zoneOffset != null ? zoneOffset : INSTANCES.computeIfAbsent(zone, ZoneOffsetCache::new);
+    }
+
+    /**
+     * Get the offset of local time from UTC at the given instant
+     *
+     * @param epochMillis Instant (ms)
+     * @return Offset (ms)
+     */
+    public int getOffset(long epochMillis) {
+        return period(epochMillis).offset;
+    }
+
+    /**
+     * Get the latest offset transition at or before the given instant
+     *
+     * @param epochMillis Instant (ms)
+     * @return Instant of the transition (ms), Long.MIN_VALUE if the offset has never changed before
+     */
+    public long getTransitionTime(long epochMillis) {
+        return period(epochMillis).start;
+    }
+
+    /**
+     * Get the length of the gap in local time opened by the latest offset transition at or before the given instant
+     *
+     * @param epochMillis Instant (ms)
+     * @return Length of the gap (ms), 0 or less if the transition repeats local times or the offset has never changed before
+     */
+    public int getTransitionGap(long epochMillis) {
+        return period(epochMillis).gap;
+    }
+
+    /**
+     * Convert an instant to local time
+     *
+     * @param epochMillis Instant (ms)
+     * @return Local time as milliseconds since 1970-01-01T00:00 local time
+     */
+    public long toLocal(long epochMillis) {
+        return epochMillis + getOffset(epochMillis);
+    }
+
+    /**
+     * Convert local time to an instant
+     * <p>
+     * A local time skipped by a transition is shifted forward by the length of the gap,
+     * a local time repeated by a transition resolves to its earlier instant
+     *
+     * @param localMillis Local time as milliseconds since 1970-01-01T00:00 local time
+     * @return Instant (ms)
+     */
+    public long toUtc(long localMillis) {
+        return toUtc(localMillis, AbstractTrigger.GapPolicy.SHIFT_FORWARD, AbstractTrigger.OverlapPolicy.EARLIER);
+    }
+
+    /**
+     * Convert local time to an instant
+     * <p>
+     * Only local times within a day of an offset transition consult the zone rules, all others are converted
+     * with the cached offset
+     *
+     * @param localMillis   Local time as milliseconds since 1970-01-01T00:00 local time
+     * @param gapPolicy     Handling of a local time skipped by a transition
+     * @param overlapPolicy Handling of a local time repeated by a transition
+     * @return Instant (ms), -1 if the local time is skipped by a transition and the gap policy is SKIP
+     */
+    public long toUtc(long localMillis, AbstractTrigger.GapPolicy gapPolicy, AbstractTrigger.OverlapPolicy overlapPolicy) {
+        for (int i = 0; i < 2; i++) {
+            Period current = this.current;
+            long epochMillis = localMillis - current.offset;
+            if (current.isInside(epochMillis)) {
+                return epochMillis;
+            }
+            Period previous = this.previous;
+            if (previous.isInside(localMillis - previous.offset)) {
+                return localMillis - previous.offset;
+            }
+            if (i == 0) {
+                period(epochMillis);
+            }
+        }
+
+        // Close to a transition, let the zone rules find gaps and overlaps
+        LocalDateTime local = LocalDateTime.ofEpochSecond(Math.floorDiv(localMillis, 1000L), (int) Math.floorMod(localMillis, 1000L) * 1000000,
+                ZoneOffset.UTC);
+        ZoneOffsetTransition transition = this.rules.getTransition(local);
+        if (transition == null) {
+            return localMillis - this.rules.getOffset(local).getTotalSeconds() * 1000L;
+        }
+
+        long before = localMillis - transition.getOffsetBefore().getTotalSeconds() * 1000L;
+        if (transition.isGap()) {
+            switch (gapPolicy) {
+                case SKIP:
+                    return -1;
+                case NEXT_VALID_TIME:
+                    return transition.toEpochSecond() * 1000L;
+                default:
+                    // The offset before the gap moves the local time forward by the length of the gap
+                    return before;
+            }
+        }
+        return overlapPolicy == AbstractTrigger.OverlapPolicy.LATER ? localMillis - transition.getOffsetAfter().getTotalSeconds() * 1000L : before;
+    }
+
+    private Period period(long epochMillis) {
+        Period period = this.current;
+        if (period.contains(epochMillis)) {
+            return period;
+        }
+        period = this.previous;
+        if (period.contains(epochMillis)) {
+            return period;
+        }
+
+        period = load(epochMillis);
+        this.previous = this.current;
+        this.current = period;
+        return period;
+    }
+
+    private Period load(long epochMillis) {
+        if (this.rules.isFixedOffset()) {
+            return new Period(Long.MIN_VALUE, Long.MAX_VALUE, this.rules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000, 0);
+        }
+
+        Instant instant = Instant.ofEpochMilli(epochMillis);
+        int offset = this.rules.getOffset(instant).getTotalSeconds() * 1000;
+
+        // Latest transition at or before the instant, and first transition after it
+        ZoneOffsetTransition previous = this.rules.previousTransition(instant.plusMillis(1));
+        ZoneOffsetTransition next = this.rules.nextTransition(instant);
+
+        long start = previous != null ? previous.toEpochSecond() * 1000 : Long.MIN_VALUE;
+        long end = next != null ? next.toEpochSecond() * 1000 : Long.MAX_VALUE;
+        int gap = previous != null ? offset - previous.getOffsetBefore().getTotalSeconds() * 1000 : 0;
+        return new Period(Math.min(start, epochMillis), Math.max(end, epochMillis + 1), offset, gap);
+    }
+
+    private static final class Period {
+        private final long start;
+        private final long end;
+        private final int offset;
+        private final int gap;
+
+        private Period(long start, long end, int offset, int gap) {
+            this.start = start;
+            this.end = end;
+            this.offset = offset;
+            this.gap = gap;
+        }
+
+        private boolean contains(long epochMillis) {
+            return epochMillis >= this.start && epochMillis < this.end;
+        }
+
+        /*
+         * Whether the instant is more than a day away from both transitions of the period
+         */
+        private boolean isInside(long epochMillis) {
+            return epochMillis - DAY >= this.start && epochMillis + DAY < this.end;
+        }
+    }
+}
@@ -1,61 +1,90 @@
 package org.pinae.rafiki.trigger.impl;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
-import java.util.List;
+import java.util.TimeZone;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 import org.pinae.rafiki.trigger.AbstractTrigger;
+import org.pinae.rafiki.trigger.helper.TimeWindows;
+import org.pinae.rafiki.trigger.helper.ZoneOffsetCache;
 
 /**
  * Calendar Triggers
+ * <p>
+ * Windows are kept merged and sorted, so matching and finding the next window are binary searches
+ * regardless of the number of windows
  *
  * @author Huiyugeng
  */
 public class CalendarTrigger extends AbstractTrigger {
     private static final Logger logger = LogManager.getLogger(CalendarTrigger.class);
 
-    private final List<Date[]> timeList = new ArrayList<>();
+    private static final String[] TIME_FORMAT = {"\\d+/\\d+/\\d+\\s+\\d+:\\d+:\\d+", "\\d+-\\d+-\\d+\\s+\\d+:\\d+:\\d+"};
+    private static final Pattern[] WINDOW_PATTERN = {Pattern.compile("(" + TIME_FORMAT[0] + ")\\s*-\\s*(" + TIME_FORMAT[0] + ")"),
+            Pattern.compile("(" + TIME_FORMAT[1] + ")\\s*-\\s*(" + TIME_FORMAT[1] + ")")};
+    private static final DateTimeFormatter[] PARSE_FORMAT = {DateTimeFormatter.ofPattern("y/M/d H:m:s"), DateTimeFormatter.ofPattern("y-M-d H:m:s")};
 
-    private final String[] timeFormat = {"\\d+/\\d+/\\d+\\s+\\d+:\\d+:\\d+", "\\d+-\\d+-\\d+\\s+\\d+:\\d+:\\d+"};
-    private final String[] parseFormat = {"yyyy/MM/dd HH:mm:ss", "yyyy-MM-dd HH:mm:ss"};
+    /*
+     * Windows as start and end time (ms, both inclusive) at even and odd indexes, sorted and merged where they overlap or touch.
+     * Replaced as a whole on every change, so readers always see a consistent array
+     */
+    private volatile long[] windows = TimeWindows.EMPTY;
 
     @Override
-    public boolean match(Date now) {
-
-        if (super.isFinish()) {
-            return false;
-        }
+    protected boolean isTriggerTime(long time) {
+        return TimeWindows.indexOf(this.windows, time) >= 0;
+    }
 
-        for (Date[] time : this.timeList) {
-            if (time != null && time.length == 2) {
+    @Override
+    public int getMatchCost() {
+        return 4;
+    }
 
-                Date startDate = time[0];
-                Date endDate = time[1];
+    @Override
+    protected long getFireTimeAfter(long afterEpochMillis) {
+        long candidate = afterEpochMillis + 1;
 
-                if (now.equals(startDate) || now.equals(endDate)) {
-                    super.incExecuteCount();
-                    return true;
-                }
+        long[] windows = this.windows;
+        int index = TimeWindows.next(windows, candidate);
+        if (index < 0) {
+            return -1;
+        }
+        return Math.max(candidate, TimeWindows.start(windows, index));
+    }
 
-                if (endDate == null && now.after(startDate)) {
-                    super.incExecuteCount();
-                    return true;
-                }
+    /**
+     * Get the number of windows after overlapping and touching windows were merged
+     *
+     * @return Number of windows
+     */
+    public int getWindowCount() {
+        return TimeWindows.size(this.windows);
+    }
 
-                if (now.after(startDate) && now.before(endDate)) {
-                    super.incExecuteCount();
-                    return true;
-                }
+    private synchronized void addWindow(long startTime, long endTime) {
+        this.windows = TimeWindows.add(this.windows, startTime, endTime);
+    }
 
-            }
-        }
-        return false;
+    /**
+     * <p>Set many trigger times at once</p>
+     *
+     * <p>
+     * Loading windows in bulk sorts and merges them once, instead of once per window.
+     * Start and end times are inclusive, an end time of Long.MAX_VALUE never ends
+     * </p>
+     *
+     * @param startTimes Start times of the windows (ms)
+     * @param endTimes   End times of the windows (ms), same length as the start times
+     */
+    public synchronized void setTime(long[] startTimes, long[] endTimes) {
+        this.windows = TimeWindows.addAll(this.windows, startTimes, endTimes);
     }
 
     /**
@@ -70,38 +99,26 @@ public class CalendarTrigger extends AbstractTrigger {
      * @param time the Trigger time, use 'startTime - endTime' format
      */
     public void setTime(String time) {
-        String startTime = "";
-        String endTime = "";
-
-        for (int i = 0; i < this.timeFormat.length; i++) {
-            String absoluteTimeFormat = "(" + this.timeFormat[i] + ")\\s*-\\s*(" + this.timeFormat[i] + ")";
-
-            if (time.matches(absoluteTimeFormat)) {
-                Pattern pattern = Pattern.compile(absoluteTimeFormat);
-                Matcher matcher = pattern.matcher(time);
-
-                if (matcher.find() && matcher.groupCount() == 2) {
-                    startTime = matcher.group(1);
-                    endTime = matcher.group(2);
-                }
-            }
-        }
-
         try {
-            for (int i = 0; i < this.timeFormat.length; i++) {
-                if (startTime.matches(this.timeFormat[i]) && endTime.matches(this.timeFormat[i])) {
-                    SimpleDateFormat dateFormat = new SimpleDateFormat(this.parseFormat[i]);
-                    Date startDate = dateFormat.parse(startTime);
-                    Date endDate = dateFormat.parse(endTime);
-
-                    this.timeList.add(new Date[]{startDate, endDate});
+            for (int i = 0; i < WINDOW_PATTERN.length; i++) {
+                Matcher matcher = WINDOW_PATTERN[i].matcher(time);
+                if (matcher.matches()) {
+                    addWindow(parse(matcher.group(1), PARSE_FORMAT[i]), parse(matcher.group(2), PARSE_FORMAT[i]));
                 }
             }
-        } catch (ParseException e) {
+        } catch (DateTimeException e) {
             logger.warn(String.format("Calendar Parse Error: time=%s, exception=%s", time, e.getMessage()));
         }
     }
 
+    /*
+     * Parse a local date time of the default time zone, times in a daylight saving gap resolve to the transition
+     */
+    private long parse(String time, DateTimeFormatter format) {
+        long localMillis = LocalDateTime.parse(time, format).toEpochSecond(ZoneOffset.UTC) * 1000L;
+        return ZoneOffsetCache.of(TimeZone.getDefault()).toUtc(localMillis, GapPolicy.NEXT_VALID_TIME, getOverlapPolicy());
+    }
+
     /**
      * <p>Set the trigger time, support adding multiple trigger times</p>
      *
@@ -116,7 +133,7 @@ public class CalendarTrigger extends AbstractTrigger {
         startTime = startTime == null ? new Date() : startTime;
         endTime = endTime == null ? new Date() : endTime;
 
-        this.timeList.add(new Date[]{startTime, endTime});
+        addWindow(startTime.getTime(), endTime.getTime());
     }
 
     /**
@@ -127,6 +144,6 @@ public class CalendarTrigger extends AbstractTrigger {
     public void setTime(Date startTime) {
         startTime = startTime == null ? new Date() : startTime;
 
-        this.timeList.add(new Date[]{startTime, null});
+        addWindow(startTime.getTime(), Long.MAX_VALUE);
     }
 }
@@ -1,14 +1,14 @@
 package org.pinae.rafiki.trigger.impl;
 
-import java.util.Calendar;
-import java.util.Date;
-import java.util.GregorianCalendar;
-import java.util.Set;
+import java.time.ZoneId;
+import java.util.Iterator;
 import java.util.TimeZone;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.pinae.rafiki.trigger.AbstractTrigger;
 import org.pinae.rafiki.trigger.TriggerException;
+import org.pinae.rafiki.trigger.helper.ZoneOffsetCache;
 
 /**
  * Cron Format Trigger
@@ -16,11 +16,23 @@ import org.pinae.rafiki.trigger.TriggerException;
  * @author Huiyugeng
  */
 public class CronTrigger extends AbstractTrigger {
-    private String cron;
 
-    private CronParser cronParser;
+    /*
+     * Maximum number of compiled schedules kept in the cache
+     */
+    private static final int MAX_CACHED_SCHEDULE = 1024;
+
+    /*
+     * Compiled schedules shared by all triggers, keyed by the zone the offsets are read from and the cron expression.
+     * An arbitrary schedule is evicted when the cache is full, triggers holding it keep using it
+     */
+    private static final ConcurrentMap<ScheduleKey, Schedule> SCHEDULE_CACHE = new ConcurrentHashMap<ScheduleKey, Schedule>();
+
+    private String cron;
     private TimeZone zone = TimeZone.getDefault();
 
+    private Schedule schedule;
+
     /**
      * Constructor
      */
@@ -48,7 +60,7 @@ public class CronTrigger extends AbstractTrigger {
     public CronTrigger(TimeZone zone, String cron) {
         this();
 
-        this.zone = zone;
+        setZone(zone);
         setCron(cron);
     }
 
@@ -60,6 +72,7 @@ public class CronTrigger extends AbstractTrigger {
      * <p>
      * Month: JAN, FEB, MAR, APR, MAY, JUN, JUL, AUG, SEP, OCT, NOV, DEC
      * Weekday: SUN, MON, TUE, WED, THU, FRI, SAT
+     * Year: 1970 to 2399, years outside of this range never match
      * </p>
      *
      * <ul>
@@ -74,7 +87,7 @@ public class CronTrigger extends AbstractTrigger {
      */
     public void setCron(String cron) {
         this.cron = cron;
-        this.cronParser = new CronParser(cron);
+        this.schedule = getSchedule(this.zone, cron);
     }
 
     /**
@@ -98,71 +111,182 @@ public class CronTrigger extends AbstractTrigger {
      */
     public void setTimeZone(String zone) {
         if (zone == null) {
-            this.zone = TimeZone.getDefault();
+            setZone(TimeZone.getDefault());
         } else {
-            this.zone = TimeZone.getTimeZone(zone);
+            setZone(TimeZone.getTimeZone(zone));
         }
     }
 
-    public boolean match(Date now) {
+    private void setZone(TimeZone zone) {
+        this.zone = zone;
+        if (this.cron != null) {
+            this.schedule = getSchedule(zone, this.cron);
+        }
+    }
 
-        if (super.isFinish()) {
-            return false;
+    /*
+     * Get the compiled schedule of a cron expression from the cache, compiling it on a miss
+     */
+    private static Schedule getSchedule(TimeZone zone, String cron) {
+        ZoneId zoneId = zone.toZoneId();
+        ScheduleKey key = new ScheduleKey(zoneId, cron);
+        Schedule schedule = SCHEDULE_CACHE.get(key);
+        if (schedule != null) {
+            return schedule;
         }
 
-        boolean cronMatch = this.cronParser.match(this.zone, now.getTime());
-        if (cronMatch) {
-            super.incExecuteCount();
+        schedule = new Schedule(new CronParser(cron), ZoneOffsetCache.of(zoneId));
+        if (SCHEDULE_CACHE.size() >= MAX_CACHED_SCHEDULE) {
+            Iterator<ScheduleKey> iterator = SCHEDULE_CACHE.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        Schedule cached = SCHEDULE_CACHE.putIfAbsent(key, schedule);
+        return cached != null ? cached : schedule;
+    }
 
-            return true;
-        } else {
-            return false;
+    /**
+     * Get the number of compiled schedules in the cache shared by all cron triggers
+     *
+     * @return Number of cached schedules
+     */
+    public static int getCachedScheduleCount() {
+        return SCHEDULE_CACHE.size();
+    }
+
+    @Override
+    protected boolean isTriggerTime(long time) {
+        return this.schedule.parser.match(this.schedule.zoneOffset, getGapPolicy(), getOverlapPolicy(), time);
+    }
+
+    @Override
+    public int getMatchCost() {
+        return 8;
+    }
+
+    @Override
+    protected long getFireTimeAfter(long afterEpochMillis) {
+        return this.schedule.parser.next(this.schedule.zoneOffset, getGapPolicy(), getOverlapPolicy(), afterEpochMillis);
+    }
+
+    /**
+     * Get the first time matching the cron expression strictly after the given time
+     * <p>
+     * Unlike {@link #nextFireTime(long)} the start time, end time and execute count of the trigger are not taken into account,
+     * and the trigger is not modified
+     *
+     * @param afterEpochMillis Time after which the next match is searched (ms)
+     * @return Next matching time (ms), -1 if the expression never matches again
+     */
+    public long nextMatchTime(long afterEpochMillis) {
+        return this.schedule.parser.next(this.schedule.zoneOffset, getGapPolicy(), getOverlapPolicy(), afterEpochMillis);
+    }
+
+    /**
+     * Get the last time matching the cron expression strictly before the given time
+     * <p>
+     * Like {@link #nextMatchTime(long)} the start time, end time and execute count of the trigger are not taken into account
+     *
+     * @param beforeEpochMillis Time before which the previous match is searched (ms)
+     * @return Previous matching time (ms), -1 if the expression never matched before
+     */
+    public long previousMatchTime(long beforeEpochMillis) {
+        return this.schedule.parser.previous(this.schedule.zoneOffset, getGapPolicy(), getOverlapPolicy(), beforeEpochMillis);
+    }
+
+    /*
+     * Compiled cron expression with the offsets of its time zone, immutable and shared between triggers
+     */
+    private static final class Schedule {
+        private final CronParser parser;
+        private final ZoneOffsetCache zoneOffset;
+
+        private Schedule(CronParser parser, ZoneOffsetCache zoneOffset) {
+            this.parser = parser;
+            this.zoneOffset = zoneOffset;
+        }
+    }
+
+    /*
+     * Key of a compiled schedule, a custom time zone maps to the zone id its offsets are read from
+     */
+    private static final class ScheduleKey {
+        private final ZoneId zone;
+        private final String cron;
+
+        private ScheduleKey(ZoneId zone, String cron) {
+            this.zone = zone;
+            this.cron = cron;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ScheduleKey)) {
+                return false;
+            }
+            ScheduleKey other = (ScheduleKey) obj;
+            return this.zone.equals(other.zone) && this.cron.equals(other.cron);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.zone.hashCode() + this.cron.hashCode();
         }
     }
 
     /**
      * Cron parsing
+     * <p>
+     * Each field is compiled into a bitmask with one bit per allowed value, so matching is a few shifts
+     * and calendar fields are computed from the epoch time without allocating a Calendar.
+     * A parser is immutable once constructed
      */
-    private class CronParser {
+    private static class CronParser {
 
-        private Set<Integer> secondSet = new TreeSet<>();
-        private Set<Integer> minuteSet = new TreeSet<>();
-        private Set<Integer> hourSet = new TreeSet<>();
-        private Set<Integer> dayOfMonthSet = new TreeSet<>();
-        private Set<Integer> monthSet = new TreeSet<>();
-        private Set<Integer> dayOfWeekSet = new TreeSet<>();
-        private Set<Integer> yearSet = new TreeSet<>();
+        private static final int MIN_YEAR = 1970;
+        private static final int MAX_YEAR = 2399;
+
+        private final long secondMask;
+        private final long minuteMask;
+        private final int hourMask;
+        private final int dayOfMonthMask;
+        private final int monthMask;
+        private final int dayOfWeekMask;
+        private final long[] yearMask;
 
         public CronParser(String cron) {
             String[] cronItem = cron.split(" ");
             // Year is an optional field
             if (cronItem.length == 6 || cronItem.length == 7) {
-                secondSet = parseInteger(cronItem[0], 0, 59);
-                minuteSet = parseInteger(cronItem[1], 0, 59);
-                hourSet = parseInteger(cronItem[2], 0, 23);
-                dayOfMonthSet = parseInteger(cronItem[3], 1, 31);
-                monthSet = parseMonth(cronItem[4]);
-                dayOfWeekSet = parseDayOfWeek(cronItem[5]);
-                if (cronItem.length == 7) {
-                    yearSet = parseInteger(cronItem[6], 1970, 2100);
-                }
+                secondMask = parseInteger(cronItem[0], 0, 59, 0)[0];
+                minuteMask = parseInteger(cronItem[1], 0, 59, 0)[0];
+                hourMask = (int) parseInteger(cronItem[2], 0, 23, 0)[0];
+                dayOfMonthMask = (int) parseInteger(cronItem[3], 1, 31, 0)[0];
+                monthMask = (int) parseMonth(cronItem[4])[0];
+                dayOfWeekMask = (int) parseDayOfWeek(cronItem[5])[0];
+                yearMask = parseInteger(cronItem.length == 7 ? cronItem[6] : "*", MIN_YEAR, MAX_YEAR, MIN_YEAR);
+            } else {
+                // Malformed expressions never match
+                secondMask = 0;
+                minuteMask = 0;
+                hourMask = 0;
+                dayOfMonthMask = 0;
+                monthMask = 0;
+                dayOfWeekMask = 0;
+                yearMask = new long[(MAX_YEAR - MIN_YEAR) / 64 + 1];
             }
         }
 
-        private Set<Integer> parseInteger(String value, int min, int max) {
-            Set<Integer> result = new TreeSet<>();
-
-            String[] rangeItems;
-            if (value.contains(",")) {
-                rangeItems = value.split(",");
-            } else {
-                rangeItems = new String[1];
-                rangeItems[0] = value;
-            }
+        /*
+         * Compile a field into a bitmask, bit (value - offset) is set for each allowed value. Values out of range never match
+         */
+        private long[] parseInteger(String value, int min, int max, int offset) {
+            long[] result = new long[(max - offset) / 64 + 1];
 
+            String[] rangeItems = value.split(",");
             for (String rangeItem : rangeItems) {
-                Set<Integer> tempResult = new TreeSet<>();
-
                 int interval = 1;
 
                 if (rangeItem.contains("/")) {
@@ -175,65 +299,392 @@ public class CronTrigger extends AbstractTrigger {
                     }
                 }
 
+                int start;
+                int end;
                 if (rangeItem.contains("*")) {
-                    tempResult.addAll(addToSet(min, max));
+                    start = min;
+                    end = max;
                 } else if (rangeItem.contains("-")) {
                     String[] item = rangeItem.split("-");
-                    tempResult.addAll(addToSet(Integer.parseInt(item[0]), Integer.parseInt(item[1])));
+                    start = Integer.parseInt(item[0]);
+                    end = Integer.parseInt(item[1]);
                 } else {
-                    tempResult.add(Integer.parseInt(rangeItem));
+                    start = Integer.parseInt(rangeItem);
+                    end = start;
                 }
 
-                int count = 0;
-                for (Integer item : tempResult) {
-                    if (count % interval == 0) {
-                        result.add(item);
+                for (int i = start; i <= end; i += interval) {
+                    if (i >= min && i <= max) {
+                        result[(i - offset) >>> 6] |= 1L << (i - offset);
                     }
-                    count++;
                 }
             }
 
             return result;
         }
 
-        private Set<Integer> addToSet(int start, int end) {
-            Set<Integer> result = new TreeSet<>();
-            for (int i = start; i <= end; i++) {
-                result.add(i);
-            }
-            return result;
-        }
-
-        private Set<Integer> parseMonth(String value) {
+        private long[] parseMonth(String value) {
             String[] months = {"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"};
             for (int i = 0; i < 12; i++) {
                 value = value.replaceAll(months[i], Integer.toString(i));
             }
-            return parseInteger(value, 0, 11);
+            return parseInteger(value, 0, 11, 0);
         }
 
-        private Set<Integer> parseDayOfWeek(String value) {
+        private long[] parseDayOfWeek(String value) {
             String[] dayOfWeeks = {"SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
             for (int i = 0; i < 7; i++) {
                 value = value.replaceAll(dayOfWeeks[i], Integer.toString(i + 1));
             }
-            return parseInteger(value, 1, 7);
+            return parseInteger(value, 1, 7, 0);
+        }
+
+        private boolean isYear(int year) {
+            if (year < MIN_YEAR || year > MAX_YEAR) {
+                return false;
+            }
+            int bit = year - MIN_YEAR;
+            return (yearMask[bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        /**
+         * Whether the second containing the given time matches
+         * <p>
+         * A local time repeated by a daylight saving transition only matches at the instant chosen by the overlap policy.
+         * A local time skipped by a transition matches at the instant the gap policy moves it to, as returned by next()
+         *
+         * @param zoneOffset    Offset of the trigger time zone
+         * @param gapPolicy     Handling of local times skipped by a transition
+         * @param overlapPolicy Handling of local times repeated by a transition
+         * @param time          Time (ms)
+         * @return true if the second matches
+         */
+        public boolean match(ZoneOffsetCache zoneOffset, AbstractTrigger.GapPolicy gapPolicy, AbstractTrigger.OverlapPolicy overlapPolicy,
+                             long time) {
+            long second = Math.floorDiv(time, 1000L) * 1000L;
+            long localSecond = Math.floorDiv(zoneOffset.toLocal(time), 1000L);
+            if (matchLocal(localSecond)) {
+                return zoneOffset.toUtc(localSecond * 1000L, gapPolicy, overlapPolicy) == second;
+            }
+
+            // Skipped local times are moved into the length of the gap after the transition, both come from the cached period
+            if (gapPolicy == AbstractTrigger.GapPolicy.SKIP) {
+                return false;
+            }
+            long transition = zoneOffset.getTransitionTime(second);
+            int gap = zoneOffset.getTransitionGap(second);
+            if (transition == Long.MIN_VALUE || second - transition >= gap) {
+                return false;
+            }
+
+            if (gapPolicy == AbstractTrigger.GapPolicy.SHIFT_FORWARD) {
+                // The skipped local time is the instant read with the offset before the gap
+                return matchLocal(localSecond - gap / 1000);
+            }
+
+            // NEXT_VALID_TIME moves every skipped local time to the transition itself
+            return second == transition && next(zoneOffset, gapPolicy, overlapPolicy, transition - 1) == second;
+        }
+
+        /*
+         * Whether the local second matches all fields
+         */
+        private boolean matchLocal(long localSecond) {
+            int secondOfDay = (int) Math.floorMod(localSecond, 86400L);
+
+            if ((secondMask & (1L << (secondOfDay % 60))) == 0 || (minuteMask & (1L << (secondOfDay / 60 % 60))) == 0
+                    || (hourMask & (1 << (secondOfDay / 3600))) == 0) {
+                return false;
+            }
+
+            long epochDay = Math.floorDiv(localSecond, 86400L);
+            if ((dayOfWeekMask & (1 << dayOfWeek(epochDay))) == 0) {
+                return false;
+            }
+
+            long date = toDate(epochDay);
+            return (dayOfMonthMask & (1 << dayOfMonth(date))) != 0 && (monthMask & (1 << month(date))) != 0 && isYear(year(date));
         }
 
-        public boolean match(TimeZone zone, long time) {
-            GregorianCalendar gc = new GregorianCalendar();
-            gc.setTimeInMillis(time);
-            gc.setTimeZone(zone);
-            int second = gc.get(Calendar.SECOND);
-            int minute = gc.get(Calendar.MINUTE);
-            int hour = gc.get(Calendar.HOUR_OF_DAY);
-            int dayOfMonth = gc.get(Calendar.DAY_OF_MONTH);
-            int month = gc.get(Calendar.MONTH);
-            int dayOfWeek = gc.get(Calendar.DAY_OF_WEEK);
-            int year = gc.get(Calendar.YEAR);
+        /**
+         * Find the first matching second strictly after the given time
+         * <p>
+         * Fields are resolved from year down to second. When a field does not match, the search jumps to the next
+         * allowed value of that field, or carries into the next unit of the enclosing field, so sparse expressions
+         * take a few steps per year instead of one step per second
+         *
+         * @param zoneOffset    Offset of the trigger time zone
+         * @param gapPolicy     Handling of local times skipped by a daylight saving transition
+         * @param overlapPolicy Handling of local times repeated by a daylight saving transition
+         * @param after         Time after which the next match is searched (ms)
+         * @return Next matching time (ms), -1 if there is none before the end of the maximum year
+         */
+        public long next(ZoneOffsetCache zoneOffset, AbstractTrigger.GapPolicy gapPolicy, AbstractTrigger.OverlapPolicy overlapPolicy, long after) {
+            if (isEmpty()) {
+                return -1;
+            }
+
+            // Local time in seconds since 1970-01-01T00:00 local time
+            long local = Math.floorDiv(zoneOffset.toLocal(after), 1000L) + 1;
+
+            while (true) {
+                long epochDay = Math.floorDiv(local, 86400L);
+                int secondOfDay = (int) Math.floorMod(local, 86400L);
+                long date = toDate(epochDay);
+                int year = year(date);
+                int month = month(date);
+                int dayOfMonth = dayOfMonth(date);
+
+                if (!isYear(year)) {
+                    int nextYear = nextYear(year);
+                    if (nextYear < 0) {
+                        return -1;
+                    }
+                    local = toEpochDay(nextYear, 0, 1) * 86400L;
+                    continue;
+                }
+
+                int nextMonth = nextBit(monthMask, month);
+                if (nextMonth != month) {
+                    local = (nextMonth < 0 ? toEpochDay(year + 1, 0, 1) : toEpochDay(year, nextMonth, 1)) * 86400L;
+                    continue;
+                }
+
+                int lengthOfMonth = lengthOfMonth(year, month);
+                int nextDay = dayOfMonth;
+                while (nextDay <= lengthOfMonth && !isDay(nextDay, epochDay + nextDay - dayOfMonth)) {
+                    nextDay++;
+                }
+                if (nextDay != dayOfMonth) {
+                    // Past the end of the month this is the first day of the next month
+                    local = (epochDay + nextDay - dayOfMonth) * 86400L;
+                    continue;
+                }
+
+                int hour = secondOfDay / 3600;
+                int nextHour = nextBit(hourMask, hour);
+                if (nextHour != hour) {
+                    local = epochDay * 86400L + (nextHour < 0 ? 86400 : nextHour * 3600);
+                    continue;
+                }
+
+                int minute = secondOfDay / 60 % 60;
+                int nextMinute = nextBit(minuteMask, minute);
+                if (nextMinute != minute) {
+                    local = epochDay * 86400L + hour * 3600 + (nextMinute < 0 ? 3600 : nextMinute * 60);
+                    continue;
+                }
+
+                int second = secondOfDay % 60;
+                int nextSecond = nextBit(secondMask, second);
+                if (nextSecond != second) {
+                    local = epochDay * 86400L + hour * 3600 + minute * 60 + (nextSecond < 0 ? 60 : nextSecond);
+                    continue;
+                }
 
-            return secondSet.contains(second) && minuteSet.contains(minute) && hourSet.contains(hour) && dayOfMonthSet.contains(dayOfMonth)
-                    && monthSet.contains(month) && dayOfWeekSet.contains(dayOfWeek) && yearSet.contains(year);
+                // A local time skipped by a daylight saving transition may not fire, a repeated one may resolve to an instant
+                // not after the given time
+                long time = zoneOffset.toUtc(local * 1000L, gapPolicy, overlapPolicy);
+                if (time != -1 && time > after) {
+                    return time;
+                }
+                local++;
+            }
+        }
+
+        /**
+         * Find the last matching second strictly before the given time
+         *
+         * @param zoneOffset    Offset of the trigger time zone
+         * @param gapPolicy     Handling of local times skipped by a daylight saving transition
+         * @param overlapPolicy Handling of local times repeated by a daylight saving transition
+         * @param before        Time before which the previous match is searched (ms)
+         * @return Previous matching time (ms), -1 if there is none after the start of the minimum year
+         */
+        public long previous(ZoneOffsetCache zoneOffset, AbstractTrigger.GapPolicy gapPolicy, AbstractTrigger.OverlapPolicy overlapPolicy, long before) {
+            if (isEmpty()) {
+                return -1;
+            }
+
+            long local = Math.floorDiv(zoneOffset.toLocal(before) - 1, 1000L);
+
+            while (true) {
+                long epochDay = Math.floorDiv(local, 86400L);
+                int secondOfDay = (int) Math.floorMod(local, 86400L);
+                long date = toDate(epochDay);
+                int year = year(date);
+                int month = month(date);
+                int dayOfMonth = dayOfMonth(date);
+
+                if (!isYear(year)) {
+                    int previousYear = previousYear(year);
+                    if (previousYear < 0) {
+                        return -1;
+                    }
+                    local = toEpochDay(previousYear + 1, 0, 1) * 86400L - 1;
+                    continue;
+                }
+
+                int previousMonth = previousBit(monthMask, month);
+                if (previousMonth != month) {
+                    local = (previousMonth < 0 ? toEpochDay(year, 0, 1) : toEpochDay(year, previousMonth + 1, 1)) * 86400L - 1;
+                    continue;
+                }
+
+                int previousDay = dayOfMonth;
+                while (previousDay >= 1 && !isDay(previousDay, epochDay + previousDay - dayOfMonth)) {
+                    previousDay--;
+                }
+                if (previousDay != dayOfMonth) {
+                    // Before the start of the month this is the last second of the previous month
+                    local = (epochDay + previousDay - dayOfMonth + 1) * 86400L - 1;
+                    continue;
+                }
+
+                int hour = secondOfDay / 3600;
+                int previousHour = previousBit(hourMask, hour);
+                if (previousHour != hour) {
+                    local = epochDay * 86400L + (previousHour < 0 ? 0 : previousHour * 3600 + 3600) - 1;
+                    continue;
+                }
+
+                int minute = secondOfDay / 60 % 60;
+                int previousMinute = previousBit(minuteMask, minute);
+                if (previousMinute != minute) {
+                    local = epochDay * 86400L + hour * 3600 + (previousMinute < 0 ? 0 : previousMinute * 60 + 60) - 1;
+                    continue;
+                }
+
+                int second = secondOfDay % 60;
+                int previousSecond = previousBit(secondMask, second);
+                if (previousSecond != second) {
+                    local = epochDay * 86400L + hour * 3600 + minute * 60 + (previousSecond < 0 ? -1 : previousSecond);
+                    continue;
+                }
+
+                // A local time skipped by a daylight saving transition may not fire or be shifted forward,
+                // possibly not before the given time
+                long time = zoneOffset.toUtc(local * 1000L, gapPolicy, overlapPolicy);
+                if (time != -1 && time < before) {
+                    return time;
+                }
+                local--;
+            }
+        }
+
+        private boolean isEmpty() {
+            return secondMask == 0 || minuteMask == 0 || hourMask == 0 || dayOfMonthMask == 0 || monthMask == 0 || dayOfWeekMask == 0
+                    || nextYear(MIN_YEAR) < 0;
+        }
+
+        private boolean isDay(int dayOfMonth, long epochDay) {
+            return (dayOfMonthMask & (1 << dayOfMonth)) != 0 && (dayOfWeekMask & (1 << dayOfWeek(epochDay))) != 0;
+        }
+
+        /*
+         * First allowed year at or after the given year, -1 if there is none
+         */
+        private int nextYear(int year) {
+            if (year > MAX_YEAR) {
+                return -1;
+            }
+            int bit = Math.max(year - MIN_YEAR, 0);
+            for (int i = bit >>> 6; i < yearMask.length; i++) {
+                long mask = i == bit >>> 6 ? yearMask[i] & (-1L << bit) : yearMask[i];
+                if (mask != 0) {
+                    return MIN_YEAR + (i << 6) + Long.numberOfTrailingZeros(mask);
+                }
+            }
+            return -1;
+        }
+
+        /*
+         * Last allowed year at or before the given year, -1 if there is none
+         */
+        private int previousYear(int year) {
+            int bit = Math.min(year, MAX_YEAR) - MIN_YEAR;
+            for (int i = bit >> 6; i >= 0; i--) {
+                long mask = i == bit >>> 6 ? yearMask[i] & (-1L >>> (63 - (bit & 63))) : yearMask[i];
+                if (mask != 0) {
+                    return MIN_YEAR + (i << 6) + 63 - Long.numberOfLeadingZeros(mask);
+                }
+            }
+            return -1;
+        }
+
+        /*
+         * Lowest set bit at or above the given bit, -1 if there is none
+         */
+        private static int nextBit(long mask, int bit) {
+            mask &= -1L << bit;
+            return mask == 0 ? -1 : Long.numberOfTrailingZeros(mask);
+        }
+
+        /*
+         * Highest set bit at or below the given bit, -1 if there is none
+         */
+        private static int previousBit(long mask, int bit) {
+            mask &= -1L >>> (63 - bit);
+            return mask == 0 ? -1 : 63 - Long.numberOfLeadingZeros(mask);
+        }
+
+        /*
+         * Day of week counted from Sunday = 1 like Calendar.DAY_OF_WEEK, 1970-01-01 is a Thursday
+         */
+        private static int dayOfWeek(long epochDay) {
+            return (int) Math.floorMod(epochDay + 4, 7L) + 1;
+        }
+
+        private static int lengthOfMonth(int year, int month) {
+            if (month == 1) {
+                return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            }
+            return month == 3 || month == 5 || month == 8 || month == 10 ? 30 : 31;
+        }
+
+        /*
+         * Civil date from days since epoch packed as year << 9 | month << 5 | day of month, month counts from January = 0.
+         * See Howard Hinnant, "chrono-Compatible Low-Level Date Algorithms"
+         */
+        private static long toDate(long epochDay) {
+            long z = epochDay + 719468;
+            long era = Math.floorDiv(z, 146097L);
+            long dayOfEra = z - era * 146097;
+            long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+            long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+            int monthIndex = (int) ((5 * dayOfYear + 2) / 153);
+            int dayOfMonth = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+            int month = monthIndex < 10 ? monthIndex + 2 : monthIndex - 10;
+            long year = yearOfEra + era * 400 + (month <= 1 ? 1 : 0);
+            return year << 9 | month << 5 | dayOfMonth;
+        }
+
+        private static int year(long date) {
+            return (int) (date >> 9);
+        }
+
+        private static int month(long date) {
+            return (int) (date >>> 5) & 0xF;
+        }
+
+        private static int dayOfMonth(long date) {
+            return (int) date & 0x1F;
+        }
+
+        /*
+         * Days since epoch of a civil date, month counts from January = 0 and may be 12 for January of the next year
+         */
+        private static long toEpochDay(int year, int month, int dayOfMonth) {
+            if (month > 11) {
+                year += month / 12;
+                month %= 12;
+            }
+            long y = month <= 1 ? year - 1 : year;
+            long era = Math.floorDiv(y, 400L);
+            long yearOfEra = y - era * 400;
+            long dayOfYear = (153 * (month <= 1 ? month + 10 : month - 2) + 2) / 5 + dayOfMonth - 1;
+            long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+            return era * 146097 + dayOfEra - 719468;
         }
     }
 }
@@ -1,11 +1,12 @@
 package org.pinae.rafiki.trigger.impl;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.pinae.rafiki.StringUtils;
 
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
 
 /**
  * Daily Trigger
@@ -13,20 +14,64 @@ import java.util.List;
  * @author Huiyugeng
  */
 public class DailyTrigger extends EverydayTrigger {
+    private static final Logger logger = LogManager.getLogger(DailyTrigger.class);
 
-    private final List<String> dayList = new ArrayList<>();
+    /*
+     * Trigger days as days since 1970-01-01, sorted without duplicates
+     */
+    private long[] days = new long[0];
+
+    @Override
+    public int getMatchCost() {
+        // Most days are rejected by the binary search of the trigger days before any time period is searched
+        return 3;
+    }
 
     @Override
-    public boolean match(Date now) {
+    protected boolean isTriggerDay(long epochDay) {
+        return Arrays.binarySearch(this.days, epochDay) >= 0;
+    }
 
-        String date = new SimpleDateFormat("yyyy/MM/dd").format(now);
+    @Override
+    protected long getFireTimeAfter(long afterEpochMillis) {
+        long candidate = afterEpochMillis + 1;
 
-        if (this.dayList.contains(date)) {
-            return super.match(now);
-        } else {
-            return false;
+        // Only the first trigger day at or after the candidate day may have no time period left
+        int index = Arrays.binarySearch(this.days, getEpochDay(candidate));
+        for (int i = index >= 0 ? index : -index - 1; i < this.days.length; i++) {
+            long fireTime = getFireTimeOnDay(this.days[i], candidate);
+            if (fireTime > 0) {
+                return fireTime;
+            }
         }
+        return -1;
+    }
 
+    /*
+     * Parse a 'yyyy/mm/dd' date and add it to the trigger days
+     */
+    private void addDate(String date) {
+        String[] items = date.trim().split("/");
+        try {
+            if (items.length == 3) {
+                long epochDay = LocalDate.of(Integer.parseInt(items[0].trim()), Integer.parseInt(items[1].trim()), Integer.parseInt(items[2].trim()))
+                        .toEpochDay();
+                int index = Arrays.binarySearch(this.days, epochDay);
+                if (index < 0) {
+                    index = -index - 1;
+                    long[] days = new long[this.days.length + 1];
+                    System.arraycopy(this.days, 0, days, 0, index);
+                    days[index] = epochDay;
+                    System.arraycopy(this.days, index, days, index + 1, this.days.length - index);
+                    this.days = days;
+                }
+                return;
+            }
+        } catch (NumberFormatException | DateTimeException e) {
+            logger.warn(String.format("Parse Error: date=%s, exception=%s", date, e.getMessage()));
+            return;
+        }
+        logger.warn(String.format("Parse Error: date=%s", date));
     }
 
     /**
@@ -45,11 +90,11 @@ public class DailyTrigger extends EverydayTrigger {
                 String[] dates = dateText.split(";");
                 for (String date : dates) {
                     if (StringUtils.isNotBlank(date)) {
-                        this.dayList.add(date.trim());
+                        addDate(date);
                     }
                 }
             } else {
-                this.dayList.add(dateText);
+                addDate(dateText);
             }
         }
     }
@@ -1,10 +1,7 @@
 package org.pinae.rafiki.trigger.impl;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
+import java.util.Arrays;
+import java.util.TimeZone;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -12,6 +9,7 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 import org.pinae.rafiki.StringUtils;
 import org.pinae.rafiki.trigger.AbstractTrigger;
+import org.pinae.rafiki.trigger.helper.ZoneOffsetCache;
 
 /**
  * Everyday Trigger
@@ -21,57 +19,206 @@ import org.pinae.rafiki.trigger.AbstractTrigger;
 public class EverydayTrigger extends AbstractTrigger {
     private static final Logger logger = LogManager.getLogger(EverydayTrigger.class);
 
-    private final List<String> timeList = new ArrayList<>();
+    private static final Pattern PERIOD_PATTERN = Pattern.compile("(\\d+):(\\d+):(\\d+)\\s*-\\s*(\\d+):(\\d+):(\\d+)");
 
-    @Override
-    public boolean match(Date now) {
+    /*
+     * Milliseconds per day
+     */
+    protected static final long DAY = 86400000L;
+
+    /*
+     * Time periods as start and end second of day (inclusive), sorted by start and merged where they overlap
+     */
+    private int[] periodStart = new int[0];
+    private int[] periodEnd = new int[0];
+
+    private ZoneOffsetCache zoneOffset = ZoneOffsetCache.of(TimeZone.getDefault());
 
-        if (super.isFinish()) {
+    @Override
+    protected boolean isTriggerTime(long time) {
+        long epochDay = getEpochDay(time);
+        if (!isTriggerDay(epochDay)) {
             return false;
         }
 
-        String date = new SimpleDateFormat("yyyy/MM/dd").format(now);
+        // Only the last period starting at or before the time can contain it
+        int index = lastPeriodStarted(epochDay, time);
+        return index >= 0 && time <= getTime(epochDay, this.periodEnd[index]);
+    }
 
-        for (String time : this.timeList) {
-            if (StringUtils.isNotBlank(time)) {
+    @Override
+    public int getMatchCost() {
+        return 4;
+    }
 
-                String startTime = "";
-                String endTime = "";
+    @Override
+    protected long getFireTimeAfter(long afterEpochMillis) {
+        long candidate = afterEpochMillis + 1;
+
+        long epochDay = getEpochDay(candidate);
+        for (int i = 0; i < getSearchDays(); i++) {
+            if (isTriggerDay(epochDay + i)) {
+                long fireTime = getFireTimeOnDay(epochDay + i, candidate);
+                if (fireTime > 0) {
+                    return fireTime;
+                }
+            }
+        }
+        return -1;
+    }
 
-                String periodTimeFormat = "(\\d+:\\d+:\\d+)\\s*-\\s*(\\d+:\\d+:\\d+)";
-                if (time.matches(periodTimeFormat)) {
-                    Pattern pattern = Pattern.compile(periodTimeFormat);
-                    Matcher matcher = pattern.matcher(time);
+    /**
+     * Get the number of days searched for the next fire time
+     *
+     * @return Number of days
+     */
+    protected int getSearchDays() {
+        return 2;
+    }
 
-                    if (matcher.find() && matcher.groupCount() == 2) {
-                        startTime = String.format("%s %s", date, matcher.group(1));
-                        endTime = String.format("%s %s", date, matcher.group(2));
-                    }
-                }
+    /**
+     * Whether the trigger may fire on the given day
+     *
+     * @param epochDay Local day as days since 1970-01-01
+     * @return true if the time periods apply to this day
+     */
+    protected boolean isTriggerDay(long epochDay) {
+        return true;
+    }
 
-                Date startDate = new Date();
-                Date endDate = new Date();
+    /**
+     * Get the earliest time not before the candidate which is inside one of the time periods of the given day
+     *
+     * @param epochDay  Local day as days since 1970-01-01
+     * @param candidate Earliest acceptable time (ms)
+     * @return Fire time (ms), -1 if there is none on this day
+     */
+    protected long getFireTimeOnDay(long epochDay, long candidate) {
+        // First period ending at or after the candidate
+        int low = 0;
+        int high = this.periodEnd.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (getTime(epochDay, this.periodEnd[middle]) < candidate) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (low >= this.periodEnd.length) {
+            return -1;
+        }
+        return Math.max(candidate, getTime(epochDay, this.periodStart[low]));
+    }
 
-                try {
-                    String timeFormat = "\\d+/\\d+/\\d+\\s+\\d+:\\d+:\\d+";
-                    if (startTime.matches(timeFormat) && endTime.matches(timeFormat)) {
-                        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
-                        startDate = dateFormat.parse(startTime);
-                        endDate = dateFormat.parse(endTime);
-                    }
-                } catch (ParseException e) {
-                    logger.warn(String.format("Parse Error: time=%s, exception=%s", time, e.getMessage()));
-                }
+    /*
+     * Index of the last period of the day starting at or before the given time, -1 if there is none.
+     * Resolving local times to instants never changes their order, so periods stay sorted by their start instant
+     */
+    private int lastPeriodStarted(long epochDay, long time) {
+        int low = 0;
+        int high = this.periodStart.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (getTime(epochDay, this.periodStart[middle]) <= time) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
 
-                if (now.equals(startDate) || now.equals(endDate) || (now.after(startDate) && now.before(endDate))) {
-                    super.incExecuteCount();
+    /**
+     * Get the local day which contains the given time
+     *
+     * @param time Time (ms)
+     * @return Local day as days since 1970-01-01
+     */
+    protected long getEpochDay(long time) {
+        return Math.floorDiv(this.zoneOffset.toLocal(time), DAY);
+    }
 
-                    return true;
-                }
+    /**
+     * Get the instant of a local time of day
+     * <p>
+     * A local time skipped by a daylight saving transition resolves to the transition, a repeated one
+     * resolves by the overlap policy
+     *
+     * @param epochDay    Local day as days since 1970-01-01
+     * @param secondOfDay Local time of day (s)
+     * @return Time (ms)
+     */
+    protected long getTime(long epochDay, int secondOfDay) {
+        return this.zoneOffset.toUtc(epochDay * DAY + secondOfDay * 1000L, GapPolicy.NEXT_VALID_TIME, getOverlapPolicy());
+    }
 
+    /*
+     * Parse a time period and merge it into the sorted periods, periods ending before they start never match
+     */
+    private void addPeriod(String time) {
+        Matcher matcher = PERIOD_PATTERN.matcher(time.trim());
+        if (!matcher.matches()) {
+            logger.warn(String.format("Parse Error: time=%s", time));
+            return;
+        }
+
+        int start;
+        int end;
+        try {
+            start = getSecondOfDay(matcher.group(1), matcher.group(2), matcher.group(3));
+            end = getSecondOfDay(matcher.group(4), matcher.group(5), matcher.group(6));
+        } catch (NumberFormatException e) {
+            logger.warn(String.format("Parse Error: time=%s, exception=%s", time, e.getMessage()));
+            return;
+        }
+        if (start > end) {
+            return;
+        }
+
+        int count = this.periodStart.length;
+        int[] starts = Arrays.copyOf(this.periodStart, count + 1);
+        int[] ends = Arrays.copyOf(this.periodEnd, count + 1);
+        int index = count;
+        while (index > 0 && starts[index - 1] > start) {
+            starts[index] = starts[index - 1];
+            ends[index] = ends[index - 1];
+            index--;
+        }
+        starts[index] = start;
+        ends[index] = end;
+
+        // Merge periods which overlap or touch
+        int merged = 0;
+        for (int i = 1; i <= count; i++) {
+            if (starts[i] <= ends[merged] + 1) {
+                ends[merged] = Math.max(ends[merged], ends[i]);
+            } else {
+                merged++;
+                starts[merged] = starts[i];
+                ends[merged] = ends[i];
             }
         }
-        return false;
+        this.periodStart = Arrays.copyOf(starts, merged + 1);
+        this.periodEnd = Arrays.copyOf(ends, merged + 1);
+    }
+
+    private int getSecondOfDay(String hour, String minute, String second) {
+        return Integer.parseInt(hour) * 3600 + Integer.parseInt(minute) * 60 + Integer.parseInt(second);
+    }
+
+    /**
+     * <p>Set the trigger time zone</p>
+     *
+     * <p>
+     * For example "GMT-8"
+     * If the time zone is set to null, TimeZone.getDefault() will be used
+     * </p>
+     *
+     * @param zone Time Zone
+     */
+    public void setTimeZone(String zone) {
+        this.zoneOffset = ZoneOffsetCache.of(zone == null ? TimeZone.getDefault() : TimeZone.getTimeZone(zone));
     }
 
     /**
@@ -90,11 +237,11 @@ public class EverydayTrigger extends AbstractTrigger {
                 String[] times = timeText.split(";");
                 for (String time : times) {
                     if (StringUtils.isNotBlank(time)) {
-                        this.timeList.add(time.trim());
+                        addPeriod(time);
                     }
                 }
             } else {
-                this.timeList.add(timeText);
+                addPeriod(timeText);
             }
         }
     }
@@ -1,8 +1,6 @@
 package org.pinae.rafiki.trigger.impl;
 
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
 
 import org.pinae.rafiki.trigger.Trigger;
 import org.pinae.rafiki.trigger.AbstractTrigger;
@@ -11,6 +9,9 @@ import org.pinae.rafiki.trigger.AbstractTrigger;
  * Mixed trigger
  * <p>
  * Supports mixed triggering of different types of triggers
+ * <p>
+ * Triggers are tested without side effects, cheapest first, and the next fire time is the intersection (AND)
+ * or union (OR) of the next fire times of the triggers
  *
  * @author Huiyugeng
  */
@@ -20,7 +21,16 @@ public class MixedTrigger extends AbstractTrigger {
     public final static int OR = 0;
     private int operate = AND;
 
-    private Set<Trigger> triggerSet = new HashSet<Trigger>();
+    /*
+     * Maximum rounds when searching the common fire time of AND triggers
+     */
+    private static final int MAX_SEARCH = 10000;
+
+    /*
+     * Triggers ordered by match cost, triggers of equal cost in the order they were added.
+     * Replaced as a whole when a trigger is added, so readers always see a consistent array
+     */
+    private volatile Trigger[] triggers = new Trigger[0];
 
     /**
      * Constructor
@@ -31,48 +41,129 @@ public class MixedTrigger extends AbstractTrigger {
     }
 
     @Override
-    public boolean match(Date now) {
+    protected boolean isTriggerTime(long time) {
+        // Cheap triggers first, so AND stops at the first cheap rejection and OR at the first cheap acceptance
+        for (Trigger trigger : this.triggers) {
+            if (time > trigger.getStartTime().getTime()) {
 
-        if (super.isFinish()) {
-            return false;
-        }
+                boolean triggerMatch = isMatch(trigger, time);
 
-        for (Trigger trigger : this.triggerSet) {
-            if (trigger != null) {
+                if (!triggerMatch && this.operate == AND) {
+                    return false;
+                } else if (triggerMatch && this.operate == OR) {
+                    return true;
+                }
+            }
+        }
 
-                if (now.getTime() > trigger.getStartTime().getTime()) {
+        return this.operate == AND;
+    }
 
-                    boolean triggerMatch = trigger.match(now);
+    @Override
+    protected long getFireTimeAfter(long afterEpochMillis) {
+        Trigger[] triggers = this.triggers;
+        if (triggers.length == 0) {
+            return this.operate == AND ? afterEpochMillis + 1 : -1;
+        }
 
-                    if (!triggerMatch && this.operate == AND) {
-                        return false;
-                    } else if (triggerMatch && this.operate == OR) {
-                        super.incExecuteCount();
-                        return true;
+        if (this.operate == AND) {
+            // Intersection: move the candidate to the next fire time of each trigger in turn
+            // until every trigger fires at it
+            long candidate = afterEpochMillis + 1;
+            int agreed = 0;
+            for (int i = 0; i < MAX_SEARCH * triggers.length; i++) {
+                long next = triggers[i % triggers.length].nextFireTime(candidate - 1);
+                if (next < 0) {
+                    return -1;
+                }
+                if (next == candidate) {
+                    agreed++;
+                } else {
+                    candidate = next;
+                    agreed = 1;
+                }
+                if (agreed == triggers.length) {
+                    return candidate;
+                }
+            }
+            return -1;
+        } else {
+            // Union: earliest next fire time of all triggers, nothing fires before the time right after the given one
+            long fireTime = -1;
+            for (Trigger trigger : triggers) {
+                long next = trigger.nextFireTime(afterEpochMillis);
+                if (next >= 0 && (fireTime < 0 || next < fireTime)) {
+                    fireTime = next;
+                    if (fireTime == afterEpochMillis + 1) {
+                        break;
                     }
                 }
             }
+            return fireTime;
+        }
+    }
+
+    @Override
+    public int getMatchCost() {
+        int cost = 1;
+        for (Trigger trigger : this.triggers) {
+            cost = (int) Math.min(Integer.MAX_VALUE, (long) cost + getMatchCost(trigger));
         }
+        return cost;
+    }
 
-        if (this.operate == AND) {
-            super.incExecuteCount();
-            return true;
-        } else {
-            return false;
+    /*
+     * Test a trigger without side effects where possible, other triggers and triggers overriding match(Date) count the hit
+     */
+    private static boolean isMatch(Trigger trigger, long time) {
+        if (trigger instanceof AbstractTrigger && !isCustomMatch((AbstractTrigger) trigger)) {
+            return ((AbstractTrigger) trigger).isMatch(time);
+        }
+        return trigger.match(new Date(time));
+    }
+
+    /*
+     * Triggers of unknown cost and triggers overriding match(Date) are tested last
+     */
+    private static int getMatchCost(Trigger trigger) {
+        if (trigger instanceof AbstractTrigger && !isCustomMatch((AbstractTrigger) trigger)) {
+            return ((AbstractTrigger) trigger).getMatchCost();
         }
+        return Integer.MAX_VALUE;
     }
 
     /**
-     * Add triggers to mixed triggers
+     * <p>Add triggers to mixed triggers</p>
+     *
+     * <p>
+     * Triggers are tested in the order of their match cost when they are added, a trigger added twice is tested once
+     * </p>
      *
      * @param trigger The trigger to be added
      */
-    public void addTrigger(Trigger trigger) {
+    public synchronized void addTrigger(Trigger trigger) {
         if (trigger != null) {
             if (trigger.isRepeat()) {
                 this.setRepeat(true);
             }
-            this.triggerSet.add(trigger);
+
+            Trigger[] triggers = this.triggers;
+            for (Trigger added : triggers) {
+                if (added.equals(trigger)) {
+                    return;
+                }
+            }
+
+            int cost = getMatchCost(trigger);
+            int index = triggers.length;
+            while (index > 0 && getMatchCost(triggers[index - 1]) > cost) {
+                index--;
+            }
+            Trigger[] result = new Trigger[triggers.length + 1];
+            System.arraycopy(triggers, 0, result, 0, index);
+            result[index] = trigger;
+            System.arraycopy(triggers, index, result, index + 1, triggers.length - index);
+            this.triggers = result;
         }
     }
 
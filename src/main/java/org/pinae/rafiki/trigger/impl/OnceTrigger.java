@@ -1,7 +1,5 @@
 package org.pinae.rafiki.trigger.impl;
 
-import java.util.Date;
-
 import org.pinae.rafiki.trigger.AbstractTrigger;
 
 /**
@@ -17,14 +15,18 @@ public class OnceTrigger extends AbstractTrigger {
     }
 
     @Override
-    public boolean match(Date now) {
+    protected boolean isTriggerTime(long time) {
+        return true;
+    }
 
-        if (super.isFinish()) {
-            return false;
-        }
+    @Override
+    public int getMatchCost() {
+        return 1;
+    }
 
-        super.incExecuteCount();
-        return true;
+    @Override
+    protected long getFireTimeAfter(long afterEpochMillis) {
+        return afterEpochMillis + 1;
     }
 
     public boolean isRepeat() {
@@ -1,8 +1,7 @@
 package org.pinae.rafiki.trigger.impl;
 
-import java.util.Date;
-
 import org.pinae.rafiki.trigger.AbstractTrigger;
+import org.pinae.rafiki.trigger.TriggerState;
 
 /**
  * Simple Periodic trigger
@@ -10,7 +9,6 @@ import org.pinae.rafiki.trigger.AbstractTrigger;
  * @author Huiyugeng
  */
 public class SimpleTrigger extends AbstractTrigger {
-    private long lastExecuteTime = 0;
 
     /**
      * Constructor
@@ -30,18 +28,25 @@ public class SimpleTrigger extends AbstractTrigger {
     }
 
     @Override
-    public boolean match(Date now) {
-
-        if (super.isFinish()) {
-            return false;
-        }
-
-        if (now.getTime() - this.lastExecuteTime < getRepeatInterval()) {
-            return false;
-        } else {
-            this.lastExecuteTime = System.currentTimeMillis();
-            super.incExecuteCount();
-            return true;
-        }
+    protected boolean fire(long time, TriggerState state) {
+        long lastFireTime = state.getLastFireTime();
+
+        // Of concurrent matches within one repeat interval only the first one fires
+        return time - lastFireTime >= getRepeatInterval() && state.compareAndSetLastFireTime(lastFireTime, time) && super.fire(time, state);
+    }
+
+    @Override
+    protected boolean isTriggerTime(long time, TriggerState state) {
+        return time - state.getLastFireTime() >= getRepeatInterval();
+    }
+
+    @Override
+    public int getMatchCost() {
+        return 1;
+    }
+
+    @Override
+    protected long getFireTimeAfter(long afterEpochMillis, TriggerState state) {
+        return Math.max(afterEpochMillis + 1, state.getLastFireTime() + getRepeatInterval());
     }
 }
@@ -1,48 +1,32 @@
 package org.pinae.rafiki.trigger.impl;
 
-import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.GregorianCalendar;
-import java.util.List;
-import java.util.TimeZone;
-
 /**
  * Weekday trigger
  *
  * @author Huiyugeng
  */
 public class WeekdayTrigger extends EverydayTrigger {
-    private TimeZone zone = TimeZone.getDefault();
 
-    private final List<Integer> weekdayList = new ArrayList<>();
+    /*
+     * Bit n is set when the trigger fires on weekday n, Sunday = 1
+     */
+    private int weekdayMask = 0;
 
     @Override
-    public boolean match(Date now) {
-        GregorianCalendar calendar = new GregorianCalendar();
-        calendar.setTimeInMillis(now.getTime());
-        calendar.setTimeZone(this.zone);
+    public int getMatchCost() {
+        // Most days are rejected by the weekday mask before any time period is searched
+        return 2;
+    }
 
-        int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
-        if (this.weekdayList.contains(dayOfWeek)) {
-            return super.match(now);
-        } else {
-            return false;
-        }
+    @Override
+    protected int getSearchDays() {
+        return 8;
     }
 
-    /**
-     * <p>Set the trigger time zone</p>
-     *
-     * <p>
-     * For example "GMT-8"
-     * If the time zone is set to null, TimeZone.getDefault() will be used
-     * </p>
-     *
-     * @param zone Time Zone
-     */
-    public void setTimeZone(String zone) {
-        this.zone = TimeZone.getTimeZone(zone);
+    @Override
+    protected boolean isTriggerDay(long epochDay) {
+        // 1970-01-01 is a Thursday, weekdays count from Sunday = 1
+        return (this.weekdayMask & (1 << (Math.floorMod(epochDay + 4, 7L) + 1))) != 0;
     }
 
     /**
@@ -53,7 +37,9 @@ public class WeekdayTrigger extends EverydayTrigger {
      * @param weekday Trigger time
      */
     public void setWeekday(int weekday) {
-        this.weekdayList.add(weekday);
+        if (weekday >= 1 && weekday <= 7) {
+            this.weekdayMask |= 1 << weekday;
+        }
     }
 
     /**
@@ -68,7 +54,7 @@ public class WeekdayTrigger extends EverydayTrigger {
         for (int i = 0; i < 7; i++) {
             String dayOfWeek = dayOfWeeks[i];
             if (dayOfWeek.equalsIgnoreCase(weekday)) {
-                this.weekdayList.add(i + 1);
+                this.weekdayMask |= 1 << (i + 1);
                 break;
             }
         }
@@ -0,0 +1,85 @@
+package org.pinae.rafiki.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.pinae.rafiki.task.Task;
+import org.pinae.rafiki.task.TaskException;
+import org.pinae.rafiki.task.TaskGroup;
+import org.pinae.rafiki.trigger.impl.SimpleTrigger;
+
+public class JobContextTest {
+
+    private TaskGroup group;
+
+    @After
+    public void tearDown() throws TaskException {
+        if (this.group != null) {
+            this.group.stop();
+        }
+    }
+
+    @Test
+    public void testContext() throws Exception {
+        this.group = new TaskGroup("context", 2);
+
+        List<JobContext> contexts = new CopyOnWriteArrayList<JobContext>();
+        List<String> failures = new CopyOnWriteArrayList<String>();
+        CountDownLatch done = new CountDownLatch(3);
+
+        ContextJob job = new ContextJob() {
+            public String getName() {
+                return "ContextJob";
+            }
+
+            public boolean execute(JobContext context) throws JobException {
+                contexts.add(context);
+                Integer count = (Integer) context.getData().merge("count", 1, (a, b) -> (Integer) a + (Integer) b);
+                if (count != contexts.size()) {
+                    failures.add("count=" + count);
+                }
+                if (context.getAttempt() != 1 || !"context".equals(context.getGroupName())) {
+                    failures.add("attempt=" + context.getAttempt() + "; group=" + context.getGroupName());
+                }
+                if (context.getScheduledFireTime() <= 0 || context.getScheduledFireTime() > context.getFireTime()) {
+                    failures.add("scheduled=" + context.getScheduledFireTime() + "; fired=" + context.getFireTime());
+                }
+                done.countDown();
+                return true;
+            }
+        };
+        Task task = new Task("context", job, new SimpleTrigger(3, 50));
+        this.group.addTask(task);
+        this.group.start();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(failures.toString(), 0, failures.size());
+        assertSame(task, contexts.get(0).getTask());
+
+        // Executions which do not overlap reuse one context
+        assertSame(contexts.get(0), contexts.get(1));
+        assertSame(contexts.get(1), contexts.get(2));
+    }
+
+    @Test(expected = JobException.class)
+    public void testOutsideTask() throws JobException {
+        ContextJob job = new ContextJob() {
+            public String getName() {
+                return "ContextJob";
+            }
+
+            public boolean execute(JobContext context) throws JobException {
+                return true;
+            }
+        };
+        job.execute();
+    }
+}
@@ -0,0 +1,114 @@
+package org.pinae.rafiki.job.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pinae.rafiki.job.JobException;
+
+public class NativeJobTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void checkShell() {
+        assumeTrue(new File("/bin/sh").canExecute());
+    }
+
+    @Test
+    public void testOutput() throws JobException, IOException {
+        NativeJob job = new NativeJob();
+        job.setFailOnExitCode(true);
+        job.setCommand("/bin/sh " + script("echo hello", "echo oops >&2", "exit 3"));
+        assertFalse(job.execute());
+        assertEquals("hello\n", job.getResult());
+        assertEquals("oops\n", job.getError());
+        assertEquals(3, job.getExitCode());
+        assertFalse(job.isTimeout());
+
+        // Output does not accumulate across executions
+        assertFalse(job.execute());
+        assertEquals("hello\n", job.getResult());
+    }
+
+    @Test
+    public void testExitCodeIgnored() throws JobException, IOException {
+        NativeJob job = new NativeJob();
+        job.setCommand("/bin/sh " + script("echo hello", "exit 3"));
+
+        // By default the execution succeeds whatever the exit code
+        assertTrue(job.execute());
+        assertEquals(3, job.getExitCode());
+        assertEquals("hello\n", job.getResult());
+    }
+
+    @Test
+    public void testBoundedOutput() throws JobException, IOException {
+        List<String> lines = new CopyOnWriteArrayList<String>();
+
+        NativeJob job = new NativeJob();
+        job.setMaxOutputSize(10);
+        job.setOutputSink((type, line) -> {
+            if (type == NativeJob.OutputType.STDOUT) {
+                lines.add(line);
+            }
+        });
+        // Much more output on both streams than a pipe holds
+        job.setCommand("/bin/sh " + script("i=0", "while [ $i -lt 20000 ]; do echo line$i; echo error$i >&2; i=$((i+1)); done"));
+        assertTrue(job.execute());
+        assertEquals("line19999\n", job.getResult());
+        assertEquals(20000, lines.size());
+        assertEquals("line0", lines.get(0));
+    }
+
+    @Test
+    public void testGrowingOutput() throws JobException, IOException {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            expected.append("line").append(i).append('\n');
+        }
+        String command = "/bin/sh " + script("i=0", "while [ $i -lt 3000 ]; do echo line$i; i=$((i+1)); done");
+
+        NativeJob job = new NativeJob();
+        job.setCommand(command);
+        assertTrue(job.execute());
+        assertEquals(expected.toString(), job.getResult());
+
+        // The buffer grows up to the output limit, then keeps the last characters
+        job.setMaxOutputSize(1000);
+        assertTrue(job.execute());
+        assertEquals(expected.substring(expected.length() - 1000), job.getResult());
+    }
+
+    @Test
+    public void testTimeout() throws JobException, IOException {
+        NativeJob job = new NativeJob();
+        job.setTimeout(500);
+        job.setCommand("/bin/sh " + script("sleep 30", "echo done"));
+
+        long start = System.currentTimeMillis();
+        assertFalse(job.execute());
+        assertTrue(System.currentTimeMillis() - start < 10000);
+        assertTrue(job.isTimeout());
+        assertEquals("", job.getResult());
+    }
+
+    private String script(String... lines) throws IOException {
+        File script = folder.newFile();
+        Files.write(script.toPath(), String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        return script.getAbsolutePath();
+    }
+}
@@ -0,0 +1,95 @@
+package org.pinae.rafiki.job.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.pinae.rafiki.job.JobException;
+
+public class ReflectionJobTest {
+
+    public static class Counter {
+        private static int instances = 0;
+        private int count = 0;
+
+        public Counter() {
+            instances++;
+        }
+
+        public int count() {
+            return ++count;
+        }
+
+        public String join(String first, String second) {
+            return first + second;
+        }
+
+        public void fail(String message) {
+            throw new IllegalStateException(message);
+        }
+
+        public static long twice(Long value) {
+            return value * 2;
+        }
+    }
+
+    @Test
+    public void testInstanceScope() throws Exception {
+        assertEquals(1, count(ReflectionJob.InstanceScope.PER_FIRING));
+        assertEquals(3, count(ReflectionJob.InstanceScope.SINGLETON));
+        assertEquals(3, count(ReflectionJob.InstanceScope.POOLED));
+    }
+
+    @Test
+    public void testMethodName() throws JobException {
+        ReflectionJob job = new ReflectionJob();
+        job.setClassName(Counter.class.getName());
+        job.setMethodName("join");
+        job.setParameters(new Object[] {"Hello", " World"});
+        job.execute();
+        assertEquals("Hello World", job.getResult());
+
+        job.setParameters(new Object[] {"Hi", " there"});
+        job.execute();
+        assertEquals("Hi there", job.getResult());
+
+        // Static methods are executed without an instance
+        int instances = Counter.instances;
+        job.setMethodName("twice");
+        job.setParameters(new Object[] {21L});
+        job.execute();
+        assertEquals(42L, job.getResult());
+        assertEquals(instances, Counter.instances);
+    }
+
+    @Test
+    public void testException() throws Exception {
+        ReflectionJob job = new ReflectionJob(Counter.class, Counter.class.getMethod("fail", String.class));
+        job.setParameters(new Object[] {"failed"});
+        try {
+            job.execute();
+            fail();
+        } catch (JobException e) {
+            assertEquals("failed", e.getCause().getMessage());
+        }
+        assertNull(job.getResult());
+
+        job.setMethodName("missing");
+        try {
+            job.execute();
+            fail();
+        } catch (JobException e) {
+            assertEquals(NoSuchMethodException.class, e.getCause().getClass());
+        }
+    }
+
+    private int count(ReflectionJob.InstanceScope instanceScope) throws Exception {
+        ReflectionJob job = new ReflectionJob(Counter.class, Counter.class.getMethod("count"));
+        job.setInstanceScope(instanceScope);
+        for (int i = 0; i < 3; i++) {
+            job.execute();
+        }
+        return (Integer) job.getResult();
+    }
+}
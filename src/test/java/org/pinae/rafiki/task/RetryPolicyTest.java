@@ -0,0 +1,167 @@
+package org.pinae.rafiki.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.pinae.rafiki.job.AbstractJob;
+import org.pinae.rafiki.job.JobException;
+import org.pinae.rafiki.trigger.AbstractTrigger;
+import org.pinae.rafiki.trigger.impl.OnceTrigger;
+
+public class RetryPolicyTest {
+
+    private TaskGroup group;
+
+    @After
+    public void tearDown() throws TaskException {
+        if (this.group != null) {
+            this.group.stop();
+        }
+    }
+
+    @Test
+    public void testDelay() {
+        RetryPolicy policy = new RetryPolicy(10, 100);
+        policy.setJitter(0);
+        policy.setMaxDelay(1000);
+
+        assertEquals(100, policy.getDelay(1));
+        assertEquals(200, policy.getDelay(2));
+        assertEquals(800, policy.getDelay(4));
+        assertEquals(1000, policy.getDelay(5));
+        assertEquals(1000, policy.getDelay(9));
+
+        policy.setJitter(0.5);
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.getDelay(3);
+            assertTrue(delay >= 200 && delay <= 400);
+        }
+    }
+
+    @Test
+    public void testRetryOn() {
+        RetryPolicy policy = new RetryPolicy(3, 100);
+        assertTrue(policy.isRetry(1, null));
+        assertTrue(policy.isRetry(2, new IllegalStateException()));
+        assertFalse(policy.isRetry(3, null));
+
+        policy.setRetryOnFail(false);
+        assertFalse(policy.isRetry(1, null));
+
+        policy.setRetryOn(Collections.singletonList(IOException.class));
+        assertTrue(policy.isRetry(1, new JobException(new IOException())));
+        assertFalse(policy.isRetry(1, new JobException("Not retryable")));
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        this.group = new TaskGroup("retry", 2);
+
+        List<Integer> attempts = new CopyOnWriteArrayList<Integer>();
+        CountDownLatch done = new CountDownLatch(1);
+        Task task = new Task("retry", new AbstractJob() {
+            @Override
+            public boolean execute() throws JobException {
+                int attempt = TaskRunner.current().getAttempt();
+                attempts.add(attempt);
+                if (attempt == 1) {
+                    return false;
+                } else if (attempt == 2) {
+                    throw new JobException(new IOException("Connection reset"));
+                }
+                done.countDown();
+                return true;
+            }
+        }, new OnceTrigger());
+
+        RetryPolicy policy = new RetryPolicy(5, 20);
+        policy.setRetryOn(Collections.singletonList(IOException.class));
+        task.setRetryPolicy(policy);
+        this.group.addTask(task);
+        this.group.start();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertEquals(3, attempts.size());
+        assertEquals(Integer.valueOf(3), attempts.get(2));
+        assertEquals(2, task.getRunner().getRetryCount());
+    }
+
+    @Test
+    public void testNotRetryable() throws Exception {
+        this.group = new TaskGroup("retry", 2);
+
+        List<Integer> attempts = new CopyOnWriteArrayList<Integer>();
+        Task task = new Task("retry", new AbstractJob() {
+            @Override
+            public boolean execute() throws JobException {
+                attempts.add(TaskRunner.current().getAttempt());
+                throw new JobException("Not retryable");
+            }
+        }, new OnceTrigger());
+
+        RetryPolicy policy = new RetryPolicy(5, 20);
+        policy.setRetryOn(Collections.singletonList(IOException.class));
+        task.setRetryPolicy(policy);
+        this.group.addTask(task);
+        this.group.start();
+
+        TimeUnit.MILLISECONDS.sleep(300);
+        assertEquals(1, attempts.size());
+        assertEquals(0, task.getRunner().getRetryCount());
+    }
+
+    @Test
+    public void testOverlappingRetries() throws Exception {
+        this.group = new TaskGroup("retry", 2);
+
+        // Two overlapping executions fail together, each one is retried
+        List<Integer> attempts = new CopyOnWriteArrayList<Integer>();
+        CyclicBarrier overlap = new CyclicBarrier(2);
+        Task task = new Task("retry", new AbstractJob() {
+            @Override
+            public boolean execute() throws JobException {
+                int attempt = TaskRunner.current().getAttempt();
+                attempts.add(attempt);
+                if (attempt == 1) {
+                    try {
+                        overlap.await(5, TimeUnit.SECONDS);
+                    } catch (Exception e) {
+                        throw new JobException(e);
+                    }
+                    return false;
+                }
+                return true;
+            }
+        }, new AbstractTrigger() {
+        });
+        task.getTrigger().setRepeat(false);
+        task.setConcurrencyPolicy(Task.ConcurrencyPolicy.ALLOW);
+        task.setRetryPolicy(new RetryPolicy(2, 20));
+        this.group.addTask(task);
+        this.group.start();
+
+        task.getRunner().run();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (attempts.size() < 4 && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertEquals(4, attempts.size());
+        assertEquals(Integer.valueOf(2), attempts.get(2));
+        assertEquals(Integer.valueOf(2), attempts.get(3));
+        assertEquals(2, task.getRunner().getRetryCount());
+    }
+}
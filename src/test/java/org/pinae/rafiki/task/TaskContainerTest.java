@@ -0,0 +1,132 @@
+package org.pinae.rafiki.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.pinae.rafiki.job.AbstractJob;
+import org.pinae.rafiki.job.JobException;
+import org.pinae.rafiki.trigger.impl.OnceTrigger;
+import org.pinae.rafiki.trigger.impl.SimpleTrigger;
+
+public class TaskContainerTest {
+
+    private TaskContainer container;
+
+    @After
+    public void tearDown() throws TaskException {
+        if (this.container != null) {
+            this.container.stop();
+        }
+    }
+
+    @Test
+    public void testDispatchToGroupWorkers() throws Exception {
+        testDispatchToGroupWorkers(TaskContainer.Engine.EXECUTOR, "executor-container-dispatcher");
+    }
+
+    @Test
+    public void testDispatchToGroupWorkersOnTimingWheel() throws Exception {
+        testDispatchToGroupWorkers(TaskContainer.Engine.TIMING_WHEEL, "wheel-container Wheel-Ticker");
+    }
+
+    private void testDispatchToGroupWorkers(TaskContainer.Engine engine, String dispatcherThread) throws Exception {
+        String name = engine == TaskContainer.Engine.EXECUTOR ? "executor-container" : "wheel-container";
+        this.container = new TaskContainer(name, engine);
+        this.container.addGroup("alpha");
+        this.container.addGroup("beta");
+
+        Map<String, String> threads = new ConcurrentHashMap<String, String>();
+        CountDownLatch executed = new CountDownLatch(2);
+        this.container.addTask(new Task("alpha-task", new ThreadJob(threads, executed), new OnceTrigger()), "alpha");
+        this.container.addTask(new Task("beta-task", new ThreadJob(threads, executed), new OnceTrigger()), "beta");
+        this.container.start();
+
+        assertTrue(executed.await(5, TimeUnit.SECONDS));
+        assertTrue(threads.get("alpha-task"), threads.get("alpha-task").startsWith("alpha-worker-"));
+        assertTrue(threads.get("beta-task"), threads.get("beta-task").startsWith("beta-worker-"));
+        assertTrue(isAlive(dispatcherThread));
+
+        this.container.stop();
+        this.container = null;
+
+        // The dispatcher thread ends once the container has stopped
+        long deadline = System.currentTimeMillis() + 5000;
+        while (isAlive(dispatcherThread) && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertFalse(isAlive(dispatcherThread));
+    }
+
+    @Test
+    public void testRestart() throws Exception {
+        this.container = new TaskContainer("restart-container");
+
+        AtomicInteger executions = new AtomicInteger();
+        this.container.addTask(new Task("restart", new AbstractJob() {
+            @Override
+            public boolean execute() throws JobException {
+                executions.incrementAndGet();
+                return true;
+            }
+        }, new SimpleTrigger(1000, 20)), "restart");
+        this.container.start();
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        this.container.stop();
+        TimeUnit.MILLISECONDS.sleep(50);
+        int stopped = executions.get();
+        assertTrue(stopped > 0);
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertEquals(stopped, executions.get());
+
+        for (int i = 0; i < 3; i++) {
+            this.container.restart();
+        }
+        this.container.stop();
+        this.container.start();
+
+        // Fires again after the restarts, from a single armed run
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executions.get() < stopped + 5 && System.currentTimeMillis() < deadline) {
+            assertTrue(this.container.getQueueSize() <= 1);
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        assertTrue(executions.get() >= stopped + 5);
+    }
+
+    private static boolean isAlive(String threadPrefix) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(threadPrefix) && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static class ThreadJob extends AbstractJob {
+        private final Map<String, String> threads;
+        private final CountDownLatch executed;
+
+        ThreadJob(Map<String, String> threads, CountDownLatch executed) {
+            this.threads = threads;
+            this.executed = executed;
+        }
+
+        @Override
+        public boolean execute() throws JobException {
+            Task task = TaskRunner.current().getTask();
+            this.threads.put(task.getName(), Thread.currentThread().getName());
+            this.executed.countDown();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package org.pinae.rafiki.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+import org.pinae.rafiki.job.AbstractJob;
+import org.pinae.rafiki.job.JobException;
+import org.pinae.rafiki.task.scheduler.VirtualThreads;
+import org.pinae.rafiki.trigger.impl.OnceTrigger;
+import org.pinae.rafiki.trigger.impl.SimpleTrigger;
+
+public class TaskGroupTest {
+
+    private TaskGroup group;
+
+    /*
+     * Shared timer and workers of the task group, so only its permits bound the running jobs
+     */
+    private ScheduledExecutorService timer;
+    private ExecutorService workers;
+
+    @After
+    public void tearDown() throws TaskException {
+        if (this.group != null) {
+            this.group.stop();
+        }
+        if (this.timer != null) {
+            this.timer.shutdownNow();
+            this.workers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testVirtualFallback() throws Exception {
+        // The build targets Java 11, where the runtime has no virtual threads
+        assumeFalse(VirtualThreads.isSupported());
+
+        Thread thread = executeOn(TaskGroup.ExecutionMode.VIRTUAL);
+        assertEquals(Thread.class, thread.getClass());
+        assertTrue(thread.getName(), thread.getName().startsWith("virtual-worker-"));
+    }
+
+    @Test
+    public void testVirtual() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+
+        Thread thread = executeOn(TaskGroup.ExecutionMode.VIRTUAL);
+        assertEquals("java.lang.VirtualThread", thread.getClass().getName());
+        assertTrue(thread.getName(), thread.getName().startsWith("virtual-worker-"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testVirtualUnsupported() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        VirtualThreads.newThreadPerTaskExecutor("virtual-worker");
+    }
+
+    @Test
+    public void testCancelQueued() throws Exception {
+        TaskContainer container = new TaskContainer("cancel-container");
+        try {
+            for (int i = 0; i < 3; i++) {
+                SimpleTrigger trigger = new SimpleTrigger(10, 3600000);
+                trigger.setStartDelayTime(3600000);
+                container.addTask(new Task("hourly-" + i, new CountJob(), trigger), "cancel");
+            }
+            container.start();
+
+            TaskGroup group = container.getGroup("cancel");
+            assertEquals(3, group.getQueueSize());
+            assertEquals(3, container.getQueueSize());
+
+            // A stopped or removed task leaves the timer at once
+            group.stop("hourly-0");
+            assertFalse(group.getTasks().isEmpty());
+            assertEquals(2, group.getQueueSize());
+            assertEquals(2, container.getQueueSize());
+
+            Task removed = group.removeTask("hourly-1");
+            assertFalse(removed.getRunner().isArmed());
+            assertEquals(1, group.getQueueSize());
+            assertEquals(1, container.getQueueSize());
+
+            group.stop();
+            assertEquals(0, group.getQueueSize());
+            assertEquals(0, container.getQueueSize());
+        } finally {
+            container.stop();
+        }
+    }
+
+    @Test
+    public void testCancelRunning() throws Exception {
+        this.group = new TaskGroup("cancel", 2);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        Task task = new Task("running", new AbstractJob() {
+            @Override
+            public boolean execute() throws JobException {
+                executions.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new JobException(e);
+                }
+                return true;
+            }
+        }, new SimpleTrigger(10, 10));
+        this.group.addTask(task);
+        this.group.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Stopped while its job executes, the run does not arm the next firing once the job returns
+        this.group.stop("running");
+        assertEquals(0, this.group.getQueueSize());
+        release.countDown();
+
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertEquals(1, executions.get());
+        assertFalse(task.getRunner().isArmed());
+        assertEquals(0, this.group.getQueueSize());
+        assertEquals(Task.Status.STOP, task.getStatus());
+    }
+
+    @Test
+    public void testRestart() throws Exception {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1);
+        timer.setRemoveOnCancelPolicy(true);
+        try {
+            this.group = new TaskGroup("restart", 2, timer);
+
+            CountJob job = new CountJob();
+            this.group.addTask(new Task("restart", job, new SimpleTrigger(1000, 20)));
+            this.group.start();
+            TimeUnit.MILLISECONDS.sleep(200);
+
+            this.group.stop();
+            TimeUnit.MILLISECONDS.sleep(50);
+            int stopped = job.executions.get();
+            assertTrue(stopped > 0);
+            TimeUnit.MILLISECONDS.sleep(100);
+            assertEquals(stopped, job.executions.get());
+
+            for (int i = 0; i < 3; i++) {
+                this.group.restart();
+            }
+
+            // Fires again after the restarts, from a single armed run
+            assertRearmed(job, stopped + 5, timer);
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRestartWhileRunning() throws Exception {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1);
+        timer.setRemoveOnCancelPolicy(true);
+        try {
+            this.group = new TaskGroup("restart", 2, timer);
+
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            CountJob job = new CountJob() {
+                @Override
+                public boolean execute() throws JobException {
+                    super.execute();
+                    started.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new JobException(e);
+                    }
+                    return true;
+                }
+            };
+            Task task = new Task("restart", job, new SimpleTrigger(1000, 20));
+            this.group.addTask(task);
+            this.group.start();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // The firings of the restarted schedule are skipped while the run from before the restart executes
+            this.group.restart();
+            TimeUnit.MILLISECONDS.sleep(100);
+            assertEquals(1, job.executions.get());
+            assertTrue(task.getRunner().getSkippedCount() > 0);
+
+            release.countDown();
+            assertRearmed(job, 5, timer);
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    /*
+     * Wait for the executions of the job, checking that the timer never holds more than one armed run of it
+     */
+    private static void assertRearmed(CountJob job, int executions, ScheduledThreadPoolExecutor timer) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (job.executions.get() < executions && System.currentTimeMillis() < deadline) {
+            assertTrue(timer.getQueue().size() <= 1);
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        assertTrue(job.executions.get() >= executions);
+    }
+
+    @Test
+    public void testOverflowQueue() throws Exception {
+        BulkheadJob job = saturate(TaskGroup.OverflowPolicy.QUEUE, 1, 3);
+
+        // The firings above the limit wait for the running job to complete
+        assertEquals(1, this.group.getActiveCount());
+        assertEquals(2, this.group.getWaitingCount());
+        assertEquals(1, job.started.size());
+
+        job.release.countDown();
+        assertTrue(job.awaitStarted(3));
+        assertEquals(0, this.group.getWaitingCount());
+        assertEquals(0, this.group.getDiscardedCount());
+        assertEquals(job.started.toString(), 1, job.maxRunning.get());
+    }
+
+    @Test
+    public void testOverflowDiscard() throws Exception {
+        BulkheadJob job = saturate(TaskGroup.OverflowPolicy.DISCARD, 1, 3);
+
+        // The firings above the limit are dropped
+        assertEquals(1, this.group.getActiveCount());
+        assertEquals(0, this.group.getWaitingCount());
+        assertEquals(2, this.group.getDiscardedCount());
+
+        job.release.countDown();
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertEquals(1, job.started.size());
+        assertEquals(0, this.group.getActiveCount());
+    }
+
+    @Test
+    public void testLowerMaxConcurrent() throws Exception {
+        BulkheadJob job = saturate(TaskGroup.OverflowPolicy.QUEUE, 2, 4);
+        assertEquals(2, this.group.getWaitingCount());
+
+        // Lowered while both permits are in use, the limit applies once a running job completes
+        this.group.setMaxConcurrent(1);
+        assertEquals(2, this.group.getActiveCount());
+
+        job.release.countDown();
+        assertTrue(job.awaitStarted(4));
+        assertEquals(job.started.toString(), Integer.valueOf(1), job.started.get(2));
+        assertEquals(job.started.toString(), Integer.valueOf(1), job.started.get(3));
+    }
+
+    /*
+     * Start tasks firing at once in a group running at most maxConcurrent jobs, and return once the jobs holding the
+     * permits block
+     */
+    private BulkheadJob saturate(TaskGroup.OverflowPolicy policy, int maxConcurrent, int tasks) throws Exception {
+        this.timer = Executors.newSingleThreadScheduledExecutor();
+        this.workers = Executors.newCachedThreadPool();
+        this.group = new TaskGroup("bulkhead", tasks, this.timer, this.workers);
+        this.group.setMaxConcurrent(maxConcurrent);
+        this.group.setOverflowPolicy(policy);
+
+        BulkheadJob job = new BulkheadJob();
+        for (int i = 0; i < tasks; i++) {
+            this.group.addTask(new Task("bulkhead-" + i, job, new OnceTrigger()));
+        }
+        this.group.start();
+
+        assertTrue(job.awaitStarted(maxConcurrent));
+        TimeUnit.MILLISECONDS.sleep(100);
+        return job;
+    }
+
+    /*
+     * Thread which executed a job of a task group in the given execution mode
+     */
+    private Thread executeOn(TaskGroup.ExecutionMode executionMode) throws Exception {
+        this.group = new TaskGroup("virtual", 2);
+        this.group.setExecutionMode(executionMode);
+
+        AtomicReference<Thread> thread = new AtomicReference<Thread>();
+        CountDownLatch executed = new CountDownLatch(1);
+        this.group.addTask(new Task("thread", new AbstractJob() {
+            @Override
+            public boolean execute() throws JobException {
+                thread.set(Thread.currentThread());
+                executed.countDown();
+                return true;
+            }
+        }, new OnceTrigger()));
+        this.group.start();
+
+        assertTrue(executed.await(5, TimeUnit.SECONDS));
+        return thread.get();
+    }
+
+    private static class CountJob extends AbstractJob {
+        private final AtomicInteger executions = new AtomicInteger();
+
+        @Override
+        public boolean execute() throws JobException {
+            this.executions.incrementAndGet();
+            return true;
+        }
+    }
+
+    private static class BulkheadJob extends AbstractJob {
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        /*
+         * Number of running jobs when each execution started
+         */
+        private final List<Integer> started = new CopyOnWriteArrayList<Integer>();
+
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+
+        @Override
+        public boolean execute() throws JobException {
+            int running = this.running.incrementAndGet();
+            this.maxRunning.accumulateAndGet(running, Math::max);
+            this.started.add(running);
+            try {
+                this.release.await(5, TimeUnit.SECONDS);
+                TimeUnit.MILLISECONDS.sleep(50);
+            } catch (InterruptedException e) {
+                throw new JobException(e);
+            } finally {
+                this.running.decrementAndGet();
+            }
+            return true;
+        }
+
+        private boolean awaitStarted(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (this.started.size() < count && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            return this.started.size() >= count;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package org.pinae.rafiki.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.pinae.rafiki.job.AbstractJob;
+import org.pinae.rafiki.job.ContextJob;
+import org.pinae.rafiki.job.JobContext;
+import org.pinae.rafiki.job.JobException;
+import org.pinae.rafiki.trigger.impl.SimpleTrigger;
+
+public class TaskRunnerTest {
+
+    private static final long INTERVAL = 100;
+
+    private TaskGroup group;
+
+    @After
+    public void tearDown() throws TaskException {
+        if (this.group != null) {
+            this.group.stop();
+        }
+    }
+
+    @Test
+    public void testMisfireSkip() throws Exception {
+        MisfireJob job = misfire(Task.MisfirePolicy.SKIP);
+
+        // The missed firings are dropped, the original schedule continues
+        List<Long> offsets = job.getOffsets();
+        for (long offset = INTERVAL; offset < 5 * INTERVAL; offset += INTERVAL) {
+            assertFalse(offsets.toString(), offsets.contains(offset));
+        }
+        long next = offsets.get(1);
+        assertEquals(offsets.toString(), 0, next % INTERVAL);
+        assertTrue(offsets.toString(), job.getScheduledFireTime(1) - job.getEndTime() < INTERVAL);
+    }
+
+    @Test
+    public void testMisfireFireOnceNow() throws Exception {
+        MisfireJob job = misfire(Task.MisfirePolicy.FIRE_ONCE_NOW);
+
+        // One late run for all missed firings, then the original schedule continues
+        List<Long> offsets = job.getOffsets();
+        assertEquals(offsets.toString(), Long.valueOf(INTERVAL), offsets.get(1));
+        assertTrue(job.getFireTime(1) >= job.getEndTime());
+        for (long offset = 2 * INTERVAL; offset < 5 * INTERVAL; offset += INTERVAL) {
+            assertFalse(offsets.toString(), offsets.contains(offset));
+        }
+        assertEquals(offsets.toString(), 0, offsets.get(2) % INTERVAL);
+    }
+
+    @Test
+    public void testMisfireFireAllMissed() throws Exception {
+        MisfireJob job = misfire(Task.MisfirePolicy.FIRE_ALL_MISSED);
+
+        // Every missed firing runs back to back after the slow run
+        List<Long> offsets = job.getOffsets();
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(offsets.toString(), Long.valueOf(i * INTERVAL), offsets.get(i));
+            assertTrue(job.getFireTime(i) >= job.getEndTime());
+        }
+    }
+
+    @Test
+    public void testMisfireRescheduleNext() throws Exception {
+        MisfireJob job = misfire(Task.MisfirePolicy.RESCHEDULE_NEXT);
+
+        // The missed firings are dropped, the schedule restarts one repeat interval after the late firing
+        List<Long> offsets = job.getOffsets();
+        for (long offset = INTERVAL; offset < 5 * INTERVAL; offset += INTERVAL) {
+            assertFalse(offsets.toString(), offsets.contains(offset));
+        }
+        assertTrue(offsets.toString(), job.getScheduledFireTime(1) - job.getEndTime() >= INTERVAL);
+    }
+
+    @Test
+    public void testSkipIfRunning() throws Exception {
+        OverlapJob job = new OverlapJob();
+        TaskRunner runner = overlap(job, Task.ConcurrencyPolicy.SKIP_IF_RUNNING, 2);
+
+        // Fires while the first run is executing
+        runner.run();
+        assertEquals(1, job.executions.get());
+        assertEquals(1, runner.getSkippedCount());
+
+        job.release.countDown();
+        assertTrue(job.awaitExecutions(2));
+        assertEquals(1, job.maxRunning.get());
+    }
+
+    @Test
+    public void testQueueOne() throws Exception {
+        OverlapJob job = new OverlapJob();
+        TaskRunner runner = overlap(job, Task.ConcurrencyPolicy.QUEUE_ONE, 3);
+
+        // The first overlapping firing is queued, the second one is dropped
+        runner.run();
+        TimeUnit.MILLISECONDS.sleep(50);
+        runner.run();
+        assertEquals(1, job.executions.get());
+        assertEquals(1, runner.getSkippedCount());
+
+        job.release.countDown();
+        assertTrue(job.awaitExecutions(2));
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertEquals(2, job.executions.get());
+        assertEquals(1, job.maxRunning.get());
+    }
+
+    @Test
+    public void testAllow() throws Exception {
+        OverlapJob job = new OverlapJob();
+        TaskRunner runner = overlap(job, Task.ConcurrencyPolicy.ALLOW, 2);
+
+        // The overlapping firing runs while the first run is still executing
+        runner.run();
+        assertEquals(2, job.executions.get());
+        assertEquals(2, job.maxRunning.get());
+        assertEquals(0, runner.getSkippedCount());
+
+        job.release.countDown();
+    }
+
+    /*
+     * Start a task whose first run blocks until released, and return once the first run executes
+     */
+    private TaskRunner overlap(OverlapJob job, Task.ConcurrencyPolicy policy, int repeatCount) throws Exception {
+        this.group = new TaskGroup("overlap", 2);
+
+        Task task = new Task("overlap", job, new SimpleTrigger(repeatCount, 10));
+        task.setConcurrencyPolicy(policy);
+        this.group.addTask(task);
+        this.group.start();
+
+        assertTrue(job.started.await(5, TimeUnit.SECONDS));
+        // Past the repeat interval, so the trigger matches again
+        TimeUnit.MILLISECONDS.sleep(50);
+        return task.getRunner();
+    }
+
+    private static class OverlapJob extends AbstractJob {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private final AtomicInteger executions = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+
+        @Override
+        public boolean execute() throws JobException {
+            int running = this.running.incrementAndGet();
+            this.maxRunning.accumulateAndGet(running, Math::max);
+            try {
+                if (this.executions.incrementAndGet() == 1) {
+                    this.started.countDown();
+                    this.release.await(5, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                throw new JobException(e);
+            } finally {
+                this.running.decrementAndGet();
+            }
+            return true;
+        }
+
+        private boolean awaitExecutions(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (this.executions.get() < count && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            return this.executions.get() >= count;
+        }
+    }
+
+    /*
+     * Run a FIXED_RATE task whose first run takes 4.5 repeat intervals, so the following firings are late
+     */
+    private MisfireJob misfire(Task.MisfirePolicy policy) throws Exception {
+        this.group = new TaskGroup("misfire", 2);
+
+        MisfireJob job = new MisfireJob();
+        Task task = new Task("misfire", job, new SimpleTrigger(1000, INTERVAL));
+        task.setScheduleMode(TaskGroup.ScheduleMode.FIXED_RATE);
+        task.setMisfirePolicy(policy);
+        task.setMisfireThreshold(INTERVAL / 2);
+        this.group.addTask(task);
+        this.group.start();
+
+        TimeUnit.MILLISECONDS.sleep(10 * INTERVAL);
+        this.group.stop();
+        this.group = null;
+        return job;
+    }
+
+    private static class MisfireJob implements ContextJob {
+
+        /*
+         * Scheduled and actual fire time of each execution
+         */
+        private final List<long[]> executions = new CopyOnWriteArrayList<long[]>();
+
+        private volatile long endTime;
+
+        public String getName() {
+            return "MisfireJob";
+        }
+
+        public boolean execute(JobContext context) throws JobException {
+            this.executions.add(new long[] {context.getScheduledFireTime(), context.getFireTime()});
+            if (this.executions.size() == 1) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(INTERVAL * 9 / 2);
+                } catch (InterruptedException e) {
+                    throw new JobException(e);
+                }
+                this.endTime = System.currentTimeMillis();
+            }
+            return true;
+        }
+
+        /*
+         * Scheduled fire times relative to the first one
+         */
+        private List<Long> getOffsets() {
+            List<Long> offsets = new ArrayList<Long>();
+            for (long[] execution : this.executions) {
+                offsets.add(execution[0] - this.executions.get(0)[0]);
+            }
+            return offsets;
+        }
+
+        private long getScheduledFireTime(int index) {
+            return this.executions.get(index)[0];
+        }
+
+        private long getFireTime(int index) {
+            return this.executions.get(index)[1];
+        }
+
+        private long getEndTime() {
+            return this.endTime;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package org.pinae.rafiki.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.pinae.rafiki.job.AbstractJob;
+import org.pinae.rafiki.job.CancellationToken;
+import org.pinae.rafiki.job.JobException;
+import org.pinae.rafiki.listener.JobListener;
+import org.pinae.rafiki.trigger.impl.OnceTrigger;
+import org.pinae.rafiki.trigger.impl.SimpleTrigger;
+
+public class TaskTimeoutTest {
+
+    private TaskGroup group;
+
+    @After
+    public void tearDown() throws TaskException {
+        if (this.group != null) {
+            this.group.stop();
+        }
+    }
+
+    @Test
+    public void testInterrupt() throws Exception {
+        this.group = new TaskGroup("timeout", 2);
+
+        SleepJob job = new SleepJob();
+        Task task = new Task("sleep", job, new OnceTrigger());
+        task.setTimeout(100);
+        this.group.addTask(task);
+        this.group.start();
+
+        assertTrue(job.done.await(5, TimeUnit.SECONDS));
+        assertTrue(job.interrupted.get());
+        assertTrue(job.cancelled.get());
+        assertTrue(job.timeout.get());
+        assertEquals(1, task.getRunner().getTimeoutCount());
+        assertFalse(Thread.interrupted());
+    }
+
+    @Test
+    public void testNotify() throws Exception {
+        this.group = new TaskGroup("timeout", 2);
+
+        SleepJob job = new SleepJob();
+        job.sleep = 300;
+        Task task = new Task("sleep", job, new OnceTrigger());
+        task.setTimeout(100);
+        task.setTimeoutPolicy(Task.TimeoutPolicy.NOTIFY);
+        this.group.addTask(task);
+        this.group.start();
+
+        assertTrue(job.done.await(5, TimeUnit.SECONDS));
+        assertTrue(job.timeout.get());
+        assertFalse(job.interrupted.get());
+        assertFalse(job.cancelled.get());
+        assertEquals(1, task.getRunner().getTimeoutCount());
+    }
+
+    @Test
+    public void testAbandon() throws Exception {
+        this.group = new TaskGroup("timeout", 2);
+        this.group.setMaxConcurrent(1);
+
+        // Ignores interrupts and cancellation, only the abandonment frees its permit
+        AtomicBoolean release = new AtomicBoolean();
+        CountDownLatch stuck = new CountDownLatch(1);
+        Task stuckTask = new Task("stuck", new AbstractJob() {
+            @Override
+            public boolean execute() throws JobException {
+                stuck.countDown();
+                while (!release.get()) {
+                    Thread.onSpinWait();
+                }
+                return true;
+            }
+        }, new OnceTrigger());
+        stuckTask.setTimeout(100);
+        stuckTask.setTimeoutPolicy(Task.TimeoutPolicy.ABANDON);
+        stuckTask.setAbandonDelay(100);
+        this.group.addTask(stuckTask);
+        this.group.start();
+        assertTrue(stuck.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch executed = new CountDownLatch(1);
+        Task nextTask = new Task("next", new AbstractJob() {
+            @Override
+            public boolean execute() throws JobException {
+                executed.countDown();
+                return true;
+            }
+        }, new OnceTrigger());
+        this.group.addTask(nextTask);
+        this.group.start(nextTask);
+
+        try {
+            assertTrue(executed.await(5, TimeUnit.SECONDS));
+            assertEquals(1, this.group.getAbandonedCount());
+        } finally {
+            release.set(true);
+        }
+    }
+
+    @Test
+    public void testAbandonRepeating() throws Exception {
+        this.group = new TaskGroup("timeout", 2);
+
+        // The first execution ignores interrupts and cancellation, the later ones return at once
+        AtomicBoolean release = new AtomicBoolean();
+        AtomicInteger executions = new AtomicInteger();
+        Task task = new Task("stuck", new AbstractJob() {
+            @Override
+            public boolean execute() throws JobException {
+                if (executions.incrementAndGet() == 1) {
+                    while (!release.get()) {
+                        Thread.onSpinWait();
+                    }
+                }
+                return true;
+            }
+        }, new SimpleTrigger(1000, 50));
+        task.setTimeout(100);
+        task.setTimeoutPolicy(Task.TimeoutPolicy.ABANDON);
+        task.setAbandonDelay(100);
+        this.group.addTask(task);
+        this.group.start();
+
+        try {
+            // Later firings run while the abandoned execution is still stuck
+            long deadline = System.currentTimeMillis() + 5000;
+            while (executions.get() < 4 && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            assertTrue(executions.get() >= 4);
+            assertEquals(1, this.group.getAbandonedCount());
+        } finally {
+            release.set(true);
+        }
+
+        // The abandoned execution returning late does not stop the schedule
+        int executed = executions.get();
+        TimeUnit.MILLISECONDS.sleep(300);
+        assertTrue(executions.get() > executed);
+    }
+
+    @Test
+    public void testSlowTimeoutListener() throws Exception {
+        this.group = new TaskGroup("timeout", 2);
+
+        // The job listener blocks in executeTimeout until released
+        CountDownLatch release = new CountDownLatch(1);
+        SleepJob job = new SleepJob() {
+            @Override
+            public void executeTimeout() {
+                super.executeTimeout();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        Task slowTask = new Task("slow", job, new OnceTrigger());
+        slowTask.setTimeout(50);
+        this.group.addTask(slowTask);
+
+        AtomicInteger executions = new AtomicInteger();
+        Task fastTask = new Task("fast", new AbstractJob() {
+            @Override
+            public boolean execute() throws JobException {
+                executions.incrementAndGet();
+                return true;
+            }
+        }, new SimpleTrigger(0, 50));
+        this.group.addTask(fastTask);
+        this.group.start();
+
+        try {
+            // The timer keeps firing the other task while the listener blocks
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!job.timeout.get() && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            assertTrue(job.timeout.get());
+            int executed = executions.get();
+            TimeUnit.MILLISECONDS.sleep(300);
+            assertTrue(executions.get() >= executed + 3);
+        } finally {
+            release.countDown();
+        }
+        assertTrue(job.done.await(5, TimeUnit.SECONDS));
+        assertTrue(job.interrupted.get());
+    }
+
+    private static class SleepJob extends AbstractJob implements JobListener {
+        private long sleep = 10000;
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicBoolean interrupted = new AtomicBoolean();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final AtomicBoolean timeout = new AtomicBoolean();
+
+        @Override
+        public boolean execute() throws JobException {
+            CancellationToken token = TaskRunner.current().getCancellationToken();
+            try {
+                TimeUnit.MILLISECONDS.sleep(this.sleep);
+            } catch (InterruptedException e) {
+                this.interrupted.set(true);
+            }
+            this.cancelled.set(token.isCancelled());
+            this.done.countDown();
+            return true;
+        }
+
+        public void beforeJobExecute() {
+        }
+
+        public void afterJobExecute() {
+        }
+
+        public void executeFail() {
+        }
+
+        public void executeException() {
+        }
+
+        @Override
+        public void executeTimeout() {
+            this.timeout.set(true);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.pinae.rafiki.task.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class HashedWheelSchedulerTest {
+
+    @Test
+    public void testSchedule() throws InterruptedException {
+        HashedWheelScheduler scheduler = new HashedWheelScheduler("test");
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            long start = System.nanoTime();
+            scheduler.schedule(latch::countDown, 50, TimeUnit.MILLISECONDS);
+
+            assertTrue(latch.await(2, TimeUnit.SECONDS));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+            assertEquals(0, scheduler.size());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        HashedWheelScheduler scheduler = new HashedWheelScheduler("test", 2);
+        try {
+            final AtomicInteger counter = new AtomicInteger();
+            ScheduledFuture<?> future = scheduler.schedule(counter::incrementAndGet, 100, TimeUnit.MILLISECONDS);
+            scheduler.schedule(counter::incrementAndGet, 1, TimeUnit.HOURS);
+            assertEquals(2, scheduler.size());
+
+            assertTrue(future.cancel(false));
+            assertEquals(1, scheduler.size());
+
+            TimeUnit.MILLISECONDS.sleep(300);
+            assertEquals(0, counter.get());
+        } finally {
+            assertEquals(1, scheduler.shutdownNow().size());
+            assertTrue(scheduler.isShutdown());
+        }
+    }
+
+    @Test
+    public void testFixedRate() throws InterruptedException {
+        HashedWheelScheduler scheduler = new HashedWheelScheduler("test");
+        try {
+            final CountDownLatch latch = new CountDownLatch(3);
+            ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(latch::countDown, 0, 20, TimeUnit.MILLISECONDS);
+
+            assertTrue(latch.await(2, TimeUnit.SECONDS));
+            assertFalse(future.isDone());
+            future.cancel(false);
+            assertTrue(future.isCancelled());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdown() throws InterruptedException {
+        HashedWheelScheduler scheduler = new HashedWheelScheduler("test");
+        final CountDownLatch latch = new CountDownLatch(1);
+        scheduler.schedule(latch::countDown, 100, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> periodic = scheduler.scheduleAtFixedRate(() -> {}, 1, 1, TimeUnit.HOURS);
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("test Wheel-Ticker")) {
+                assertTrue(thread.isDaemon());
+            }
+        }
+
+        scheduler.shutdown();
+        assertTrue(scheduler.isShutdown());
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertTrue(scheduler.awaitTermination(2, TimeUnit.SECONDS));
+        assertTrue(periodic.isCancelled());
+        assertEquals(0, scheduler.size());
+    }
+}
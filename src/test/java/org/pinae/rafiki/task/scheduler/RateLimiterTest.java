@@ -0,0 +1,45 @@
+package org.pinae.rafiki.task.scheduler;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testBurst() {
+        RateLimiter rateLimiter = new RateLimiter(10, 3);
+        long now = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+
+        // Burst is granted at once, then permits are spaced 100 ms apart
+        assertEquals(0, rateLimiter.reserve(now));
+        assertEquals(0, rateLimiter.reserve(now));
+        assertEquals(0, rateLimiter.reserve(now));
+        assertEquals(100 * MS, rateLimiter.reserve(now));
+        assertEquals(200 * MS, rateLimiter.reserve(now));
+
+        assertEquals(2, rateLimiter.getDeferredCount());
+        assertEquals(300, rateLimiter.getTotalDelay(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testRefill() {
+        RateLimiter rateLimiter = new RateLimiter(10, 2);
+        long now = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+
+        assertEquals(0, rateLimiter.reserve(now));
+        assertEquals(0, rateLimiter.reserve(now));
+        assertEquals(100 * MS, rateLimiter.reserve(now));
+
+        // One permit refills every 100 ms, the bucket never holds more than the burst
+        assertEquals(0, rateLimiter.reserve(now + 200 * MS));
+        assertEquals(100 * MS, rateLimiter.reserve(now + 200 * MS));
+        assertEquals(0, rateLimiter.reserve(now + 10000 * MS));
+        assertEquals(0, rateLimiter.reserve(now + 10000 * MS));
+        assertEquals(100 * MS, rateLimiter.reserve(now + 10000 * MS));
+    }
+}
@@ -0,0 +1,88 @@
+package org.pinae.rafiki.trigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.junit.Test;
+import org.pinae.rafiki.trigger.helper.TriggerHelper;
+import org.pinae.rafiki.trigger.impl.CronTrigger;
+
+public class ExclusionCalendarTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    @Test
+    public void testExcludeDay() throws ParseException {
+        ExclusionCalendar calendar = new ExclusionCalendar(UTC);
+        calendar.excludeDate("2020/12/25; 2020/12/26; 2021/01/01; 2020/13/01; abc");
+        assertEquals(3, calendar.getExcludedDayCount());
+
+        assertTrue(calendar.isExcluded(time("2020-12-25 00:00:00")));
+        assertTrue(calendar.isExcluded(time("2020-12-26 23:59:59")));
+        assertFalse(calendar.isExcluded(time("2020-12-24 23:59:59")));
+
+        // Consecutive excluded days are skipped at once
+        assertEquals(time("2020-12-27 00:00:00"), calendar.getNextIncludedTime(time("2020-12-25 08:00:00")));
+        assertEquals(time("2020-12-24 08:00:00"), calendar.getNextIncludedTime(time("2020-12-24 08:00:00")));
+    }
+
+    @Test
+    public void testExcludeTime() throws ParseException {
+        ExclusionCalendar calendar = new ExclusionCalendar(UTC);
+        calendar.excludeTime(new Date(time("2021-03-01 22:00:00")), new Date(time("2021-03-02 02:00:00")));
+        calendar.excludeTime(new Date(time("2021-03-02 02:00:00")), new Date(time("2021-03-02 05:59:59")));
+        assertEquals(1, calendar.getExcludedTimeCount());
+
+        assertTrue(calendar.isExcluded(time("2021-03-02 03:00:00")));
+        assertEquals(time("2021-03-02 05:59:59") + 1, calendar.getNextIncludedTime(time("2021-03-01 23:00:00")));
+
+        calendar.excludeTime(new long[] {time("2021-03-02 05:59:59") + 1}, new long[] {Long.MAX_VALUE});
+        assertEquals(-1, calendar.getNextIncludedTime(time("2021-03-01 23:00:00")));
+    }
+
+    @Test
+    public void testNextFireTime() throws ParseException {
+        ExclusionCalendar calendar = new ExclusionCalendar(UTC);
+        calendar.excludeDate("2020/12/25; 2020/12/26");
+        calendar.excludeTime(new Date(time("2020-12-28 11:00:00")), new Date(time("2020-12-28 13:00:00")));
+
+        // One calendar shared by two triggers, changes apply to both
+        CronTrigger noon = new CronTrigger(UTC, "0 0 12 * * * *");
+        CronTrigger evening = new CronTrigger(UTC, "0 0 18 * * * *");
+        noon.setStartTime(new Date(0));
+        evening.setStartTime(new Date(0));
+        noon.setExclusionCalendar(calendar);
+        evening.setExclusionCalendar(calendar);
+
+        assertEquals(time("2020-12-27 12:00:00"), noon.nextFireTime(time("2020-12-24 12:00:00")));
+        assertEquals(time("2020-12-29 12:00:00"), noon.nextFireTime(time("2020-12-27 12:00:00")));
+        assertEquals(time("2020-12-28 18:00:00"), evening.nextFireTime(time("2020-12-27 18:00:00")));
+        assertFalse(noon.match(new Date(time("2020-12-25 12:00:00"))));
+
+        calendar.excludeDate("2020/12/27");
+        assertEquals(time("2020-12-29 12:00:00"), noon.nextFireTime(time("2020-12-24 12:00:00")));
+        assertEquals(time("2020-12-28 18:00:00"), evening.nextFireTime(time("2020-12-24 18:00:00")));
+
+        List<Date> fireTimes = TriggerHelper.getTriggerCalendar(new Date(time("2020-12-24 00:00:00")),
+                new Date(time("2020-12-31 00:00:00")), noon);
+        assertEquals(3, fireTimes.size());
+        assertEquals(time("2020-12-24 12:00:00"), fireTimes.get(0).getTime());
+        assertEquals(time("2020-12-29 12:00:00"), fireTimes.get(1).getTime());
+
+        noon.setExclusionCalendar(null);
+        assertEquals(time("2020-12-25 12:00:00"), noon.nextFireTime(time("2020-12-24 12:00:00")));
+    }
+
+    private long time(String date) throws ParseException {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        df.setTimeZone(UTC);
+        return df.parse(date).getTime();
+    }
+}
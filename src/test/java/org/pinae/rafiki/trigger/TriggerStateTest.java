@@ -0,0 +1,110 @@
+package org.pinae.rafiki.trigger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.pinae.rafiki.trigger.impl.CronTrigger;
+import org.pinae.rafiki.trigger.impl.SimpleTrigger;
+
+public class TriggerStateTest {
+
+    @Test
+    public void testSharedTrigger() throws CloneNotSupportedException {
+        SimpleTrigger trigger = new SimpleTrigger(2, 1000);
+        trigger.setStartTime(new Date(0));
+
+        TriggerState first = new TriggerState();
+        TriggerState second = new TriggerState();
+
+        assertTrue(trigger.match(new Date(10000), first));
+        assertFalse(trigger.match(new Date(10500), first));
+        assertTrue(trigger.match(new Date(10500), second));
+        assertEquals(11000, trigger.nextFireTime(10000, first));
+        assertEquals(11500, trigger.nextFireTime(10500, second));
+
+        assertTrue(trigger.match(new Date(11000), first));
+        assertTrue(trigger.isFinish(first));
+        assertFalse(trigger.isFinish(second));
+        assertEquals(-1, trigger.nextFireTime(11000, first));
+
+        // The definition itself has not fired
+        assertEquals(1, first.getExecuteCount() - second.getExecuteCount());
+        assertFalse(trigger.isFinish());
+
+        // A clone continues from the state of the trigger without sharing it
+        assertTrue(trigger.match(new Date(10000)));
+        AbstractTrigger clone = (AbstractTrigger) trigger.clone();
+        assertTrue(clone.match(new Date(11000)));
+        assertTrue(clone.isFinish());
+        assertFalse(trigger.isFinish());
+    }
+
+    @Test
+    public void testConcurrentMatch() throws Exception {
+        CronTrigger trigger = new CronTrigger("* * * * * * *");
+        trigger.setStartTime(new Date(0));
+        trigger.setRepeatCount(100);
+
+        TriggerState state = new TriggerState();
+        AtomicInteger fired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long time = 0; time < 10000; time++) {
+                    if (trigger.match(new Date(time * 1000), state)) {
+                        fired.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(100, fired.get());
+        assertEquals(100, state.getExecuteCount());
+    }
+
+    @Test
+    public void testCustomMatch() {
+        LegacyTrigger trigger = new LegacyTrigger();
+        trigger.setStartTime(new Date(0));
+        TriggerState state = new TriggerState();
+
+        // A trigger overriding match(Date) decides for every firing state
+        assertFalse(trigger.match(new Date(10000), state));
+        assertEquals(1, trigger.calls);
+        assertEquals(0, state.getExecuteCount());
+
+        trigger.open = true;
+        assertTrue(trigger.match(new Date(11000), state));
+        assertEquals(2, trigger.calls);
+    }
+
+    private static class LegacyTrigger extends AbstractTrigger {
+        private boolean open = false;
+        private int calls = 0;
+
+        @Override
+        public boolean match(Date now) {
+            this.calls++;
+            return this.open && super.match(now);
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package org.pinae.rafiki.trigger.helper;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 
 import org.junit.Test;
+import org.pinae.rafiki.trigger.AbstractTrigger;
 import org.pinae.rafiki.trigger.Trigger;
 import org.pinae.rafiki.trigger.impl.CronTrigger;
+import org.pinae.rafiki.trigger.impl.OnceTrigger;
+import org.pinae.rafiki.trigger.impl.SimpleTrigger;
 
 public class TriggerHelperTest {
 
@@ -26,4 +32,138 @@ public class TriggerHelperTest {
 
         }
     }
+
+    @Test
+    public void testFireTimes() throws Exception {
+        SimpleDateFormat dateFmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        long startTime = dateFmt.parse("2017-06-05 12:00:00").getTime();
+        long endTime = dateFmt.parse("2017-06-05 13:00:00").getTime();
+
+        CronTrigger cronTrigger = new CronTrigger("0-30/10 5-10 * 5-7 JUN * 2017");
+        cronTrigger.setStartTime(new Date(0));
+        assertEquals(24, TriggerHelper.fireTimes(cronTrigger, startTime, endTime, Long.MAX_VALUE).count());
+        assertArrayEquals(new long[] { dateFmt.parse("2017-06-05 12:05:00").getTime(), dateFmt.parse("2017-06-05 12:05:10").getTime() },
+                TriggerHelper.fireTimes(cronTrigger, startTime, endTime, 2).toArray());
+
+        // Fire times of a repeating trigger are spaced by its repeat interval and limited by its repeat count
+        SimpleTrigger simpleTrigger = new SimpleTrigger(3, 5000);
+        simpleTrigger.setStartTime(new Date(startTime));
+        assertArrayEquals(new long[] { startTime, startTime + 5000, startTime + 10000 },
+                TriggerHelper.fireTimes(simpleTrigger, startTime - 1, endTime, Long.MAX_VALUE).toArray());
+
+        // Enumerating fire times has no side effect on the trigger
+        OnceTrigger onceTrigger = new OnceTrigger();
+        onceTrigger.setStartTime(new Date(startTime));
+        assertEquals(1, TriggerHelper.fireTimes(onceTrigger, startTime, endTime, Long.MAX_VALUE).count());
+        assertEquals(1, TriggerHelper.getTriggerCalendar(new Date(startTime), new Date(endTime), onceTrigger).size());
+        assertTrue(onceTrigger.match(new Date(startTime + 1000)));
+    }
+
+    @Test
+    public void testPolledFireTimes() throws Exception {
+        SimpleDateFormat dateFmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        Date startTime = dateFmt.parse("2017-06-05 12:00:00");
+        Date endTime = dateFmt.parse("2017-06-05 12:10:00");
+
+        // Condition defined in match(Date) only, polled every second like a task group does
+        EvenMinuteTrigger evenMinuteTrigger = new EvenMinuteTrigger();
+        evenMinuteTrigger.setStartTime(new Date(0));
+        evenMinuteTrigger.setRepeatInterval(1000);
+        List<Date> calendarList = TriggerHelper.getTriggerCalendar(startTime, endTime, evenMinuteTrigger);
+        assertEquals(5, calendarList.size());
+        assertEquals(dateFmt.parse("2017-06-05 12:02:00"), calendarList.get(0));
+        assertEquals(2, TriggerHelper.fireTimes(evenMinuteTrigger, startTime.getTime(), endTime.getTime(), 2).count());
+        assertEquals(0, evenMinuteTrigger.getCalls());
+
+        // Trigger implementing neither AbstractTrigger nor nextFireTime
+        assertEquals(0, TriggerHelper.getTriggerCalendar(startTime, endTime, new HourlyTrigger()).size());
+        assertEquals(1, TriggerHelper.getTriggerCalendar(startTime, dateFmt.parse("2017-06-05 13:00:00"), new HourlyTrigger()).size());
+    }
+
+    private static boolean isMinute(Date now, int step) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(now);
+        return calendar.get(Calendar.SECOND) == 0 && calendar.get(Calendar.MINUTE) % step == 0;
+    }
+
+    private static class EvenMinuteTrigger extends AbstractTrigger {
+        private int calls = 0;
+
+        @Override
+        public boolean match(Date now) {
+            this.calls++;
+            return isMinute(now, 2) && super.match(now);
+        }
+
+        public int getCalls() {
+            return this.calls;
+        }
+    }
+
+    private static class HourlyTrigger implements Trigger {
+        private Date startTime = new Date(0);
+        private long repeatInterval = 1000;
+
+        public String getName() {
+            return "hourly";
+        }
+
+        public void setName(String name) {
+        }
+
+        public Date getStartTime() {
+            return this.startTime;
+        }
+
+        public long getStartDelayTime() {
+            return 0;
+        }
+
+        public Date getEndTime() {
+            return null;
+        }
+
+        public boolean isRepeat() {
+            return true;
+        }
+
+        public long getRepeatInterval() {
+            return this.repeatInterval;
+        }
+
+        public int getRepeatCount() {
+            return 0;
+        }
+
+        public boolean match(Date now) {
+            return isMinute(now, 60);
+        }
+
+        public void setStartTime(Date startTime) {
+            this.startTime = startTime;
+        }
+
+        public void setRepeat(boolean repeat) {
+        }
+
+        public void setRepeatInterval(long repeatInterval) {
+            this.repeatInterval = repeatInterval;
+        }
+
+        public void setRepeatCount(int repeatCount) {
+        }
+
+        public void setEndTime(Date endTime) {
+        }
+
+        public void setEndDelayTime(long endDelayTime) {
+        }
+
+        public void setStartDelayTime(long startDelayTime) {
+        }
+
+        public Trigger clone() throws CloneNotSupportedException {
+            return (Trigger) super.clone();
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package org.pinae.rafiki.trigger.impl;
 
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -23,6 +24,68 @@ public class CalendarTriggerTest {
         assertFalse(match("1970/02/01 12:00:00 - 1970/03/01 12:00:00", "1970-02-01 11:59:59"));
     }
 
+    @Test
+    public void testNextFireTime() throws ParseException {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        CalendarTrigger trigger = new CalendarTrigger();
+        trigger.setStartTime(new Date(0));
+        trigger.setTime("1970-01-01 12:00:00 - 1970-01-01 13:00:00");
+        trigger.setTime("1970-01-02 12:00:00 - 1970-01-02 13:00:00");
+
+        assertEquals(df.parse("1970-01-01 12:00:00").getTime(), trigger.nextFireTime(df.parse("1970-01-01 08:00:00").getTime()));
+        assertEquals(df.parse("1970-01-01 12:30:00").getTime() + 1, trigger.nextFireTime(df.parse("1970-01-01 12:30:00").getTime()));
+        assertEquals(df.parse("1970-01-02 12:00:00").getTime(), trigger.nextFireTime(df.parse("1970-01-01 13:00:00").getTime()));
+        assertEquals(-1, trigger.nextFireTime(df.parse("1970-01-02 13:00:00").getTime()));
+    }
+
+    @Test
+    public void testMergeWindows() {
+        CalendarTrigger trigger = new CalendarTrigger();
+        trigger.setStartTime(new Date(0));
+        trigger.setTime(new Date(5000), new Date(6000));
+        trigger.setTime(new Date(1000), new Date(2000));
+        trigger.setTime(new Date(2001), new Date(3000));
+        trigger.setTime(new Date(9000), new Date(8000));
+        assertEquals(2, trigger.getWindowCount());
+
+        trigger.setTime(new Date(2500), new Date(5500));
+        assertEquals(1, trigger.getWindowCount());
+        assertTrue(trigger.match(new Date(4000)));
+        assertFalse(trigger.match(new Date(6001)));
+    }
+
+    @Test
+    public void testBulkWindows() {
+        // Every other second of a day, given out of order, with duplicates and touching windows
+        int count = 43200;
+        long[] startTimes = new long[count + 2];
+        long[] endTimes = new long[count + 2];
+        for (int i = 0; i < count; i++) {
+            startTimes[i] = (count - 1 - i) * 2000L;
+            endTimes[i] = startTimes[i] + 999;
+        }
+        startTimes[count] = 0;
+        endTimes[count] = 999;
+        startTimes[count + 1] = 1000;
+        endTimes[count + 1] = 1500;
+
+        CalendarTrigger trigger = new CalendarTrigger();
+        trigger.setStartTime(new Date(0));
+        trigger.setTime(startTimes, endTimes);
+        assertEquals(count, trigger.getWindowCount());
+
+        assertTrue(trigger.match(new Date(1500)));
+        assertFalse(trigger.match(new Date(1501)));
+        assertTrue(trigger.match(new Date(86398000)));
+        assertFalse(trigger.match(new Date(86399000)));
+
+        assertEquals(2000, trigger.nextFireTime(1500));
+        assertEquals(2001, trigger.nextFireTime(2000));
+        assertEquals(4000, trigger.nextFireTime(2999));
+        assertEquals(-1, trigger.nextFireTime(86398999));
+    }
+
     private boolean match(String timeRange, String date) throws TriggerException, ParseException {
         SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         Date now = df.parse(date);
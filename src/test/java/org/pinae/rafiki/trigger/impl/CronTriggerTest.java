@@ -1,13 +1,16 @@
 package org.pinae.rafiki.trigger.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.TimeZone;
 
 import org.junit.Test;
+import org.pinae.rafiki.trigger.AbstractTrigger;
 import org.pinae.rafiki.trigger.TriggerException;
 
 public class CronTriggerTest {
@@ -43,6 +46,165 @@ public class CronTriggerTest {
         assertFalse(match("0-30/10 * * 5-12 MAY SAT 2014", "2014-05-03 13:00:10"));
         assertFalse(match("0-30/10 * * 5-12 MAY SAT 2014", "2014-05-09 13:00:10"));
 
+        // Year is optional
+        assertTrue(match("0 0 12 * * *", "2020-02-29 12:00:00"));
+        assertFalse(match("0 0 12 * * *", "2020-02-29 12:00:01"));
+        assertTrue(match("0 0 0 29 FEB *", "2024-02-29 00:00:00"));
+        assertFalse(match("0 0 0 29 FEB *", "2024-03-01 00:00:00"));
+
+        // Year range ends in 2399
+        assertTrue(match("0 0 12 * * * *", "2101-01-01 12:00:00"));
+        assertTrue(match("0 0 12 * * * *", "2399-12-31 12:00:00"));
+        assertFalse(match("0 0 12 * * * *", "2400-01-01 12:00:00"));
+
+    }
+
+    @Test
+    public void testTimeZone() throws ParseException {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        df.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        // New York is UTC-4 in summer and UTC-5 in winter
+        CronTrigger trigger = new CronTrigger(TimeZone.getTimeZone("America/New_York"), "0 0 12 * * * *");
+        assertTrue(trigger.match(df.parse("2021-07-01 16:00:00")));
+        assertFalse(trigger.match(df.parse("2021-07-01 17:00:00")));
+        assertTrue(trigger.match(df.parse("2021-12-01 17:00:00")));
+        assertFalse(trigger.match(df.parse("2021-12-01 16:00:00")));
+
+        trigger.setTimeZone("GMT+8");
+        assertTrue(trigger.match(df.parse("2021-07-01 04:00:00")));
+        assertTrue(trigger.match(df.parse("2000-02-29 04:00:00")));
+    }
+
+    @Test
+    public void testNextFireTime() throws ParseException, TriggerException {
+        assertEquals(time("1970-01-01 12:00:05"), next("0-30/5 * * * * * *", "1970-01-01 12:00:00"));
+        assertEquals(time("1970-01-01 12:01:00"), next("0-30/5 * * * * * *", "1970-01-01 12:00:30"));
+        assertEquals(time("1970-01-01 12:01:30"), next("30 1-5 * * * * *", "1970-01-01 11:59:00"));
+        assertEquals(time("1970-12-06 00:00:00"), next("0 * * * DEC SUN *", "1970-11-08 12:12:00"));
+        assertEquals(time("2014-05-10 00:00:00"), next("0-30/10 * * 5-12 MAY SAT 2014", "2013-01-01 00:00:00"));
+        assertEquals(time("2101-01-01 12:00:00"), next("0 0 12 * * * *", "2100-12-31 12:00:00"));
+        assertEquals(-1, next("0 * * * DEC * 2013", "2014-01-01 00:00:00"));
+    }
+
+    @Test
+    public void testSparseFireTime() throws ParseException, TriggerException {
+        assertEquals(time("2024-02-29 00:00:00"), next("0 0 0 29 FEB * *", "2021-03-01 00:00:00"));
+        assertEquals(time("2028-02-29 00:00:00"), next("0 0 0 29 FEB * *", "2024-02-29 00:00:00"));
+        // 2100 is not a leap year
+        assertEquals(time("2104-02-29 00:00:00"), next("0 0 0 29 FEB * *", "2096-02-29 00:00:00"));
+        assertEquals(time("2036-02-29 00:00:00"), next("0 0 0 29 FEB FRI *", "2024-03-01 00:00:00"));
+        assertEquals(time("2021-12-31 23:59:59"), next("59 59 23 31 DEC * *", "2020-12-31 23:59:59"));
+
+        assertEquals(time("2020-02-29 00:00:00"), previous("0 0 0 29 FEB * *", "2024-02-29 00:00:00"));
+        assertEquals(time("2024-02-29 00:00:00"), previous("0 0 0 29 FEB * *", "2024-02-29 00:00:01"));
+        assertEquals(time("2008-02-29 00:00:00"), previous("0 0 0 29 FEB FRI *", "2036-02-29 00:00:00"));
+        assertEquals(-1, previous("0 0 0 29 FEB * *", "1972-02-29 00:00:00"));
+    }
+
+    @Test
+    public void testPreviousFireTime() throws ParseException, TriggerException {
+        assertEquals(time("1970-01-01 12:00:00"), previous("0-30/5 * * * * * *", "1970-01-01 12:00:05"));
+        assertEquals(time("1970-01-01 12:00:30"), previous("0-30/5 * * * * * *", "1970-01-01 12:00:59"));
+        assertEquals(time("1970-01-01 11:05:30"), previous("30 1-5 * * * * *", "1970-01-01 12:00:00"));
+        assertEquals(time("1970-12-27 23:59:00"), previous("0 * * * DEC SUN *", "1971-06-01 00:00:00"));
+        assertEquals(time("2014-05-10 23:59:30"), previous("0-30/10 * * 5-12 MAY SAT 2014", "2020-01-01 00:00:00"));
+        assertEquals(-1, previous("0 * * * DEC * 2013", "2013-12-01 00:00:00"));
+    }
+
+    @Test
+    public void testDaylightSavingTime() throws ParseException {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        df.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        // 2021-03-14 02:30 does not exist in New York and is shifted to 03:30 EDT
+        CronTrigger trigger = new CronTrigger(TimeZone.getTimeZone("America/New_York"), "0 30 2 * * * *");
+        assertEquals(df.parse("2021-03-13 07:30:00").getTime(), trigger.nextMatchTime(df.parse("2021-03-13 00:00:00").getTime()));
+        assertEquals(df.parse("2021-03-14 07:30:00").getTime(), trigger.nextMatchTime(df.parse("2021-03-13 07:30:00").getTime()));
+        assertEquals(df.parse("2021-03-15 06:30:00").getTime(), trigger.nextMatchTime(df.parse("2021-03-14 07:30:00").getTime()));
+
+        // 2021-11-07 01:30 occurs twice in New York and fires at the earlier instant
+        trigger.setCron("0 30 1 * * * *");
+        assertEquals(df.parse("2021-11-07 05:30:00").getTime(), trigger.nextMatchTime(df.parse("2021-11-07 00:00:00").getTime()));
+        assertEquals(df.parse("2021-11-08 06:30:00").getTime(), trigger.nextMatchTime(df.parse("2021-11-07 05:30:00").getTime()));
+        assertEquals(df.parse("2021-11-07 05:30:00").getTime(), trigger.previousMatchTime(df.parse("2021-11-08 06:30:00").getTime()));
+        assertTrue(trigger.match(df.parse("2021-11-07 05:30:00")));
+        assertFalse(trigger.match(df.parse("2021-11-07 06:30:00")));
+    }
+
+    @Test
+    public void testDaylightSavingPolicy() throws ParseException {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        df.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        CronTrigger trigger = new CronTrigger(TimeZone.getTimeZone("America/New_York"), "0 30 2 * * * *");
+        trigger.setGapPolicy(AbstractTrigger.GapPolicy.NEXT_VALID_TIME);
+        assertEquals(df.parse("2021-03-14 07:00:00").getTime(), trigger.nextMatchTime(df.parse("2021-03-13 07:30:00").getTime()));
+        trigger.setGapPolicy(AbstractTrigger.GapPolicy.SKIP);
+        assertEquals(df.parse("2021-03-15 06:30:00").getTime(), trigger.nextMatchTime(df.parse("2021-03-13 07:30:00").getTime()));
+        assertEquals(df.parse("2021-03-13 07:30:00").getTime(), trigger.previousMatchTime(df.parse("2021-03-15 06:30:00").getTime()));
+
+        trigger.setCron("0 30 1 * * * *");
+        trigger.setOverlapPolicy(AbstractTrigger.OverlapPolicy.LATER);
+        assertEquals(df.parse("2021-11-07 06:30:00").getTime(), trigger.nextMatchTime(df.parse("2021-11-07 00:00:00").getTime()));
+        assertEquals(df.parse("2021-11-08 06:30:00").getTime(), trigger.nextMatchTime(df.parse("2021-11-07 06:30:00").getTime()));
+        assertFalse(trigger.match(df.parse("2021-11-07 05:30:00")));
+        assertTrue(trigger.match(df.parse("2021-11-07 06:30:00")));
+
+        // A local time skipped by the transition matches at the instant the gap policy moves it to
+        trigger = new CronTrigger(TimeZone.getTimeZone("America/New_York"), "0 30 2 * * *");
+        long shifted = df.parse("2026-03-08 07:30:00").getTime();
+        long transition = df.parse("2026-03-08 07:00:00").getTime();
+        assertEquals(shifted, trigger.nextMatchTime(df.parse("2026-03-07 08:00:00").getTime()));
+        assertTrue(trigger.isMatch(shifted));
+        assertTrue(trigger.match(new Date(shifted)));
+        assertFalse(trigger.isMatch(transition));
+        assertFalse(trigger.isMatch(shifted + 1000));
+
+        trigger.setGapPolicy(AbstractTrigger.GapPolicy.NEXT_VALID_TIME);
+        assertEquals(transition, trigger.nextMatchTime(df.parse("2026-03-07 08:00:00").getTime()));
+        assertTrue(trigger.isMatch(transition));
+        assertTrue(trigger.match(new Date(transition)));
+        assertFalse(trigger.isMatch(shifted));
+
+        trigger.setGapPolicy(AbstractTrigger.GapPolicy.SKIP);
+        assertFalse(trigger.isMatch(transition));
+        assertFalse(trigger.isMatch(shifted));
+    }
+
+    @Test
+    public void testScheduleCache() throws ParseException {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        df.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        int cached = CronTrigger.getCachedScheduleCount();
+        CronTrigger utcTrigger = new CronTrigger(TimeZone.getTimeZone("UTC"), "0 0 12 1 JAN * 2099");
+        CronTrigger otherUtcTrigger = new CronTrigger(TimeZone.getTimeZone("UTC"), "0 0 12 1 JAN * 2099");
+        assertEquals(cached + 1, CronTrigger.getCachedScheduleCount());
+
+        // Triggers sharing an expression in different time zones do not share the schedule
+        CronTrigger tokyoTrigger = new CronTrigger(TimeZone.getTimeZone("Asia/Tokyo"), "0 0 12 1 JAN * 2099");
+        assertEquals(cached + 2, CronTrigger.getCachedScheduleCount());
+
+        assertTrue(utcTrigger.match(df.parse("2099-01-01 12:00:00")));
+        assertTrue(otherUtcTrigger.match(df.parse("2099-01-01 12:00:00")));
+        assertTrue(tokyoTrigger.match(df.parse("2099-01-01 03:00:00")));
+        assertFalse(tokyoTrigger.match(df.parse("2099-01-01 12:00:00")));
+    }
+
+    private long previous(String cron, String date) throws TriggerException, ParseException {
+        return new CronTrigger(cron).previousMatchTime(time(date));
+    }
+
+    private long next(String cron, String date) throws TriggerException, ParseException {
+        CronTrigger trigger = new CronTrigger(cron);
+        trigger.setStartTime(new Date(0));
+
+        return trigger.nextFireTime(time(date));
+    }
+
+    private long time(String date) throws ParseException {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(date).getTime();
     }
 
     private boolean match(String cron, String date) throws TriggerException, ParseException {
@@ -1,5 +1,6 @@
 package org.pinae.rafiki.trigger.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -22,6 +23,25 @@ public class DailyTriggerTest {
         assertFalse(match("1970/12/01", "18:00:00 - 19:00:00", "1970-01-01 18:30:00"));
     }
 
+    @Test
+    public void testNextFireTime() throws ParseException {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        DailyTrigger trigger = new DailyTrigger();
+        trigger.setStartTime(new Date(0));
+        trigger.setDate("1970/01/01;1970/03/01");
+        trigger.setTime("18:00:00 - 19:00:00");
+
+        assertEquals(df.parse("1970-01-01 18:00:00").getTime(), trigger.nextFireTime(df.parse("1970-01-01 12:00:00").getTime()));
+        assertEquals(df.parse("1970-03-01 18:00:00").getTime(), trigger.nextFireTime(df.parse("1970-01-01 19:00:00").getTime()));
+        assertEquals(-1, trigger.nextFireTime(df.parse("1970-03-01 19:00:00").getTime()));
+
+        // Dates are kept sorted without duplicates
+        trigger.setDate("1970/02/01;1970/01/01");
+        assertEquals(df.parse("1970-02-01 18:00:00").getTime(), trigger.nextFireTime(df.parse("1970-01-01 19:00:00").getTime()));
+        assertEquals(df.parse("1970-01-01 18:00:00").getTime(), trigger.nextFireTime(df.parse("1969-12-31 12:00:00").getTime()));
+    }
+
     private boolean match(String dateRange, String timeRange, String date) throws TriggerException, ParseException {
         SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         Date now = df.parse(date);
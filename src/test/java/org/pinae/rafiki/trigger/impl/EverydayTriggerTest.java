@@ -1,11 +1,13 @@
 package org.pinae.rafiki.trigger.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.TimeZone;
 
 import org.junit.Test;
 import org.pinae.rafiki.trigger.TriggerException;
@@ -21,6 +23,49 @@ public class EverydayTriggerTest {
         assertTrue(match("18:00:00 - 19:00:00 ; 20:00:00 - 22:00:00", date + " 21:00:00"));
         assertFalse(match("18:00:00 - 19:00:00", date + " 17:59:59"));
         assertFalse(match("18:00:00 - 19:00:00", date + " 19:00:01"));
+
+        // Overlapping and unordered periods are merged
+        assertTrue(match("10:30:00 - 12:00:00 ; 10:00:00 - 11:00:00", date + " 10:15:00"));
+        assertTrue(match("10:30:00 - 12:00:00 ; 10:00:00 - 11:00:00", date + " 11:30:00"));
+        assertTrue(match("10:00:00 - 10:59:59 ; 11:00:00 - 12:00:00", date + " 10:59:59"));
+        assertFalse(match("10:30:00 - 12:00:00 ; 10:00:00 - 11:00:00", date + " 12:00:01"));
+        assertFalse(match("19:00:00 - 18:00:00", date + " 18:30:00"));
+    }
+
+    @Test
+    public void testNextFireTime() throws ParseException {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        EverydayTrigger trigger = new EverydayTrigger();
+        trigger.setStartTime(new Date(0));
+        trigger.setTime("18:00:00 - 19:00:00 ; 08:00:00 - 09:00:00");
+
+        assertEquals(df.parse("1970-01-05 08:00:00").getTime(), trigger.nextFireTime(df.parse("1970-01-05 07:00:00").getTime()));
+        assertEquals(df.parse("1970-01-05 18:00:00").getTime(), trigger.nextFireTime(df.parse("1970-01-05 12:00:00").getTime()));
+        assertEquals(df.parse("1970-01-05 18:30:00").getTime() + 1, trigger.nextFireTime(df.parse("1970-01-05 18:30:00").getTime()));
+        assertEquals(df.parse("1970-01-06 08:00:00").getTime(), trigger.nextFireTime(df.parse("1970-01-05 20:00:00").getTime()));
+    }
+
+    @Test
+    public void testDaylightSavingTime() throws ParseException {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        df.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        EverydayTrigger trigger = new EverydayTrigger();
+        trigger.setStartTime(new Date(0));
+        trigger.setTimeZone("America/New_York");
+        trigger.setTime("02:10:00 - 02:20:00");
+
+        // The window is skipped by the transition and collapses onto it, 03:00 EDT
+        assertEquals(df.parse("2021-03-14 07:00:00").getTime(), trigger.nextFireTime(df.parse("2021-03-14 00:00:00").getTime()));
+        assertEquals(df.parse("2021-03-15 06:10:00").getTime(), trigger.nextFireTime(df.parse("2021-03-14 07:00:00").getTime()));
+
+        // A repeated window only opens once
+        trigger = new EverydayTrigger();
+        trigger.setTimeZone("America/New_York");
+        trigger.setTime("01:10:00 - 01:20:00");
+        assertTrue(trigger.match(df.parse("2021-11-07 05:15:00")));
+        assertFalse(trigger.match(df.parse("2021-11-07 06:15:00")));
     }
 
     private boolean match(String timeRange, String date) throws TriggerException, ParseException {
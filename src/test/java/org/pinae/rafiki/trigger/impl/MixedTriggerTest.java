@@ -1,5 +1,6 @@
 package org.pinae.rafiki.trigger.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -8,6 +9,7 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 
 import org.junit.Test;
+import org.pinae.rafiki.trigger.AbstractTrigger;
 import org.pinae.rafiki.trigger.TriggerException;
 
 public class MixedTriggerTest {
@@ -25,6 +27,133 @@ public class MixedTriggerTest {
         assertFalse(match("2014-06-10 13:00:10", MixedTrigger.AND));
     }
 
+    @Test
+    public void testNextFireTime() throws ParseException, TriggerException {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        assertEquals(df.parse("2014-05-15 12:00:00").getTime(), next(df.parse("2014-05-15 11:00:00").getTime(), MixedTrigger.AND));
+        assertEquals(df.parse("2014-05-15 12:01:00").getTime(), next(df.parse("2014-05-15 12:00:30").getTime(), MixedTrigger.AND));
+        assertEquals(df.parse("2014-05-15 00:00:00").getTime(), next(df.parse("2014-05-14 10:00:00").getTime(), MixedTrigger.OR));
+        assertEquals(df.parse("2014-05-15 12:00:30").getTime() + 1, next(df.parse("2014-05-15 12:00:30").getTime(), MixedTrigger.OR));
+    }
+
+    @Test
+    public void testCostOrder() throws ParseException {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        CountTrigger countTrigger = new CountTrigger();
+        countTrigger.setStartTime(new Date(0));
+        WeekdayTrigger weekdayTrigger = new WeekdayTrigger();
+        weekdayTrigger.setStartTime(new Date(0));
+        weekdayTrigger.setWeekday("MON");
+        weekdayTrigger.setTime("09:00:00 - 17:00:00");
+        OnceTrigger onceTrigger = new OnceTrigger();
+        onceTrigger.setStartTime(new Date(0));
+
+        MixedTrigger trigger = new MixedTrigger();
+        trigger.addTrigger(countTrigger);
+        trigger.addTrigger(weekdayTrigger);
+        trigger.addTrigger(onceTrigger);
+        trigger.addTrigger(weekdayTrigger);
+
+        // The weekday trigger rejects before the expensive trigger is tested
+        assertFalse(trigger.match(df.parse("2014-05-13 10:00:00")));
+        assertEquals(0, countTrigger.count);
+
+        // Children are not changed, the once trigger still fires
+        assertTrue(trigger.match(df.parse("2014-05-12 10:00:00")));
+        assertTrue(trigger.match(df.parse("2014-05-12 10:00:01")));
+        assertEquals(2, countTrigger.count);
+        assertTrue(onceTrigger.match(df.parse("2014-05-12 10:00:00")));
+        assertFalse(onceTrigger.match(df.parse("2014-05-12 10:00:00")));
+    }
+
+    @Test
+    public void testBusinessHours() throws ParseException, TriggerException {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        CronTrigger cronTrigger = new CronTrigger("0 0 * * * * *");
+        cronTrigger.setStartTime(new Date(0));
+        WeekdayTrigger weekdayTrigger = new WeekdayTrigger();
+        weekdayTrigger.setStartTime(new Date(0));
+        for (String weekday : new String[] {"MON", "TUE", "WED", "THU", "FRI"}) {
+            weekdayTrigger.setWeekday(weekday);
+        }
+        weekdayTrigger.setTime("09:00:00 - 17:00:00");
+
+        MixedTrigger trigger = new MixedTrigger();
+        trigger.setStartTime(new Date(0));
+        trigger.addTrigger(cronTrigger);
+        trigger.addTrigger(weekdayTrigger);
+
+        // Friday evening to Monday morning, on the hour
+        assertEquals(df.parse("2014-05-19 09:00:00").getTime(), trigger.nextFireTime(df.parse("2014-05-16 17:00:00").getTime()));
+        assertEquals(df.parse("2014-05-16 11:00:00").getTime(), trigger.nextFireTime(df.parse("2014-05-16 10:00:00").getTime()));
+    }
+
+    @Test
+    public void testCustomMatch() throws ParseException {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        LegacyTrigger legacyTrigger = new LegacyTrigger();
+        legacyTrigger.setStartTime(new Date(0));
+        WeekdayTrigger weekdayTrigger = new WeekdayTrigger();
+        weekdayTrigger.setStartTime(new Date(0));
+        weekdayTrigger.setWeekday("MON");
+        weekdayTrigger.setTime("09:00:00 - 17:00:00");
+
+        MixedTrigger trigger = new MixedTrigger();
+        trigger.addTrigger(legacyTrigger);
+        trigger.addTrigger(weekdayTrigger);
+
+        // The child overriding match(Date) is tested last, and its override decides
+        assertFalse(trigger.match(df.parse("2014-05-13 10:00:00")));
+        assertEquals(0, legacyTrigger.calls);
+        assertFalse(trigger.match(df.parse("2014-05-12 10:00:00")));
+        assertEquals(1, legacyTrigger.calls);
+
+        legacyTrigger.open = true;
+        assertTrue(trigger.match(df.parse("2014-05-12 10:00:01")));
+        assertEquals(2, legacyTrigger.calls);
+    }
+
+    private static class LegacyTrigger extends AbstractTrigger {
+        private boolean open = false;
+        private int calls = 0;
+
+        @Override
+        public boolean match(Date now) {
+            this.calls++;
+            return this.open;
+        }
+    }
+
+    private static class CountTrigger extends AbstractTrigger {
+        private int count = 0;
+
+        @Override
+        protected boolean isTriggerTime(long time) {
+            count++;
+            return true;
+        }
+    }
+
+    private long next(long after, int operate) throws TriggerException {
+        CronTrigger cronTrigger = new CronTrigger("0-30/10 * * 5-15/5 * * 2014");
+        cronTrigger.setStartTime(new Date(0));
+        CalendarTrigger calendarTrigger = new CalendarTrigger();
+        calendarTrigger.setStartTime(new Date(0));
+        calendarTrigger.setTime("2014-05-15 12:00:00 - 2014-05-15 13:00:00");
+
+        MixedTrigger trigger = new MixedTrigger();
+        trigger.setStartTime(new Date(0));
+        trigger.setOperate(operate);
+        trigger.addTrigger(cronTrigger);
+        trigger.addTrigger(calendarTrigger);
+
+        return trigger.nextFireTime(after);
+    }
+
     private boolean match(String date, int operate) throws ParseException, TriggerException {
         SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         Date now = df.parse(date);
@@ -1,5 +1,6 @@
 package org.pinae.rafiki.trigger.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -25,6 +26,19 @@ public class WeekdayTriggerTest {
         assertFalse(match(Calendar.FRIDAY, "20:00:00 - 21:00:00", "1970-01-02 22:00:00"));
     }
 
+    @Test
+    public void testNextFireTime() throws ParseException {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        WeekdayTrigger trigger = new WeekdayTrigger();
+        trigger.setStartTime(new Date(0));
+        trigger.setWeekday("SAT");
+        trigger.setTime("20:00:00 - 21:00:00");
+
+        assertEquals(df.parse("1970-01-03 20:00:00").getTime(), trigger.nextFireTime(df.parse("1970-01-01 12:00:00").getTime()));
+        assertEquals(df.parse("1970-01-10 20:00:00").getTime(), trigger.nextFireTime(df.parse("1970-01-03 21:00:00").getTime()));
+    }
+
     private boolean match(int weekday, String timeRange, String date) throws TriggerException, ParseException {
         SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         Date now = df.parse(date);